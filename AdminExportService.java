@@ -0,0 +1,126 @@
+package com.hotelbooking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooking.dto.BookingSummary;
+import com.hotelbooking.dto.UserResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Admin listings of bookings and users. Pages are keyset-paginated on the primary key,
+// exports stream constructor projections from a cursor straight to the response.
+@Service
+public class AdminExportService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    private static final int FETCH_SIZE = 500;
+
+    private static final String BOOKING_SUMMARY =
+        "select new com.hotelbooking.dto.BookingSummary(b.bookingId, b.orderId, u.userId, u.name, u.email, "
+        + "h.hotelId, h.hotelName, b.checkIn, b.checkOut, b.roomsBooked, b.totalAmount, b.currency, b.status) "
+        + "from Booking b left join b.user u left join b.hotel h "
+        + "where b.bookingId > :after order by b.bookingId";
+
+    private static final String USER_RESPONSE =
+        "select new com.hotelbooking.dto.UserResponse(u.userId, u.name, u.email, u.phone, u.role, u.status) "
+        + "from User u where u.userId > :after order by u.userId";
+
+    private static final String BOOKING_CSV_HEADER =
+        "bookingId,orderId,userId,userName,userEmail,hotelId,hotelName,checkIn,checkOut,roomsBooked,totalAmount,currency,status";
+    private static final String USER_CSV_HEADER = "userId,name,email,phone,role,status";
+
+    public enum Format { NDJSON, CSV }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    public AdminExportService(ObjectMapper objectMapper){
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookingSummary> bookingPage(long after, int limit){
+        return bookingQuery(after).setMaxResults(clampLimit(limit)).getResultList();
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserResponse> userPage(long after, int limit){
+        return userQuery(after).setMaxResults(clampLimit(limit)).getResultList();
+    }
+
+    @Transactional(readOnly = true)
+    public void exportBookings(OutputStream out, Format format) throws IOException {
+        try(Stream<BookingSummary> rows = streaming(bookingQuery(0)).getResultStream()){
+            write(out, format, BOOKING_CSV_HEADER, rows.iterator(), b -> csv(
+                b.bookingId(), b.orderId(), b.userId(), b.userName(), b.userEmail(), b.hotelId(), b.hotelName(),
+                b.checkIn(), b.checkOut(), b.roomsBooked(), b.totalAmount(), b.currency(), b.status()));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream out, Format format) throws IOException {
+        try(Stream<UserResponse> rows = streaming(userQuery(0)).getResultStream()){
+            write(out, format, USER_CSV_HEADER, rows.iterator(), u -> csv(
+                u.getUserId(), u.getName(), u.getEmail(), u.getPhone(), u.getRole(), u.getStatus()));
+        }
+    }
+
+    public static int clampLimit(int limit){
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private TypedQuery<BookingSummary> bookingQuery(long after){
+        return entityManager.createQuery(BOOKING_SUMMARY, BookingSummary.class).setParameter("after", after);
+    }
+
+    private TypedQuery<UserResponse> userQuery(long after){
+        return entityManager.createQuery(USER_RESPONSE, UserResponse.class).setParameter("after", after);
+    }
+
+    private static <T> TypedQuery<T> streaming(TypedQuery<T> query){
+        return query.setHint("org.hibernate.fetchSize", FETCH_SIZE).setHint("org.hibernate.readOnly", true);
+    }
+
+    private <T> void write(OutputStream out, Format format, String csvHeader, Iterator<T> rows,
+                           Function<T, String> csvRow) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        if(format == Format.CSV){
+            writer.write(csvHeader);
+            writer.write('\n');
+        }
+        while(rows.hasNext()){
+            T row = rows.next();
+            writer.write(format == Format.CSV ? csvRow.apply(row) : objectMapper.writeValueAsString(row));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static String csv(Object... values){
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i < values.length; i++){
+            if(i > 0) line.append(',');
+            String value = values[i] == null ? "" : values[i].toString();
+            if(value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0){
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package com.hotelbooking.dto;
+
+import java.math.BigDecimal;
+
+// One hotel that can take the whole stay, priced in the currency that was asked for
+public record AvailabilityResult(Long hotelId, String hotelName, String district, int roomsFree,
+                                 long nights, BigDecimal pricePerNight, BigDecimal totalAmount, String currency) {
+}
@@ -0,0 +1,121 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.dto.AvailabilityResult;
+import com.hotelbooking.entity.Hotel;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Answers "hotels in a district with enough rooms free on every night of a stay, under a
+// nightly price, cheapest stay first". Every candidate is quoted for the same nights and
+// rooms, so stay cost orders the same way as nightly price: candidates are walked in
+// price order over columns built once per catalog version, and the walk stops as soon as
+// limit hotels have passed the ledger check, which is the only step that takes a lock.
+@Component
+public class AvailabilitySearch {
+
+    public static final int MAX_LIMIT = 100;
+
+    private final HotelCatalogCache catalogCache;
+    private final HotelSearchIndex searchIndex;
+    private final RoomInventoryLedger inventoryLedger;
+    private final AtomicReference<Columns> columns = new AtomicReference<>();
+
+    public AvailabilitySearch(HotelCatalogCache catalogCache, HotelSearchIndex searchIndex, RoomInventoryLedger inventoryLedger){
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.inventoryLedger = inventoryLedger;
+    }
+
+    // maxPricePerNight is in the requested currency; null means no price limit
+    public List<AvailabilityResult> search(String district, LocalDate checkIn, LocalDate checkOut, int rooms,
+                                           BigDecimal maxPricePerNight, String currency, ExchangeRates rates, int limit){
+        Columns cols = columns();
+        double maxUsd = maxPricePerNight == null ? Double.MAX_VALUE
+            : rates.convert(maxPricePerNight, currency, "USD").doubleValue();
+
+        // Positions in price order of every hotel in the district that could fit the stay at all
+        int[] ranks = new int[cols.size()];
+        int count = 0;
+        if(searchIndex.isReady()){
+            for(Long id : searchIndex.search(Map.of(HotelSearchIndex.Field.DISTRICT, district))){
+                Integer rank = cols.rankById.get(id);
+                if(rank != null && cols.fits(rank, rooms, maxUsd)) ranks[count++] = rank;
+            }
+        } else {
+            String term = district.trim().toLowerCase(Locale.ROOT);
+            for(int rank = 0; rank < cols.size(); rank++){
+                if(cols.districts[rank].contains(term) && cols.fits(rank, rooms, maxUsd)) ranks[count++] = rank;
+            }
+        }
+        Arrays.sort(ranks, 0, count);
+
+        long nights = BookingPricing.nights(checkIn, checkOut);
+        int wanted = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<AvailabilityResult> results = new ArrayList<>(Math.min(wanted, count));
+        for(int i = 0; i < count && results.size() < wanted; i++){
+            Hotel hotel = cols.hotels[ranks[i]];
+            int free = inventoryLedger.available(hotel, checkIn, checkOut);
+            if(free < rooms) continue;
+
+            BigDecimal nightly = rates.convert(BigDecimal.valueOf(hotel.getPricePerNight()), "USD", currency);
+            // The USD comparison above can let a hotel through by a rounding step
+            if(maxPricePerNight != null && nightly.compareTo(maxPricePerNight) > 0) continue;
+            BigDecimal total = rates.convert(BookingPricing.stayTotal(BigDecimal.valueOf(hotel.getPricePerNight()), nights, rooms),
+                "USD", currency);
+            results.add(new AvailabilityResult(hotel.getHotelId(), hotel.getHotelName(), hotel.getDistrict(), free,
+                nights, nightly, total, currency));
+        }
+        return results;
+    }
+
+    private Columns columns(){
+        HotelCatalogCache.Snapshot snapshot = catalogCache.snapshot();
+        Columns current = columns.get();
+        if(current != null && current.version == snapshot.version()) return current;
+        Columns built = new Columns(snapshot);
+        columns.set(built);
+        return built;
+    }
+
+    // The catalog laid out column by column, sorted by nightly price
+    private static final class Columns {
+        final long version;
+        final Hotel[] hotels;
+        final double[] prices;
+        final int[] capacities;
+        final String[] districts;
+        final Map<Long, Integer> rankById;
+
+        Columns(HotelCatalogCache.Snapshot snapshot){
+            this.version = snapshot.version();
+            this.hotels = snapshot.hotels().toArray(new Hotel[0]);
+            Arrays.sort(hotels, (a, b) -> Double.compare(a.getPricePerNight(), b.getPricePerNight()));
+            this.prices = new double[hotels.length];
+            this.capacities = new int[hotels.length];
+            this.districts = new String[hotels.length];
+            this.rankById = new HashMap<>(hotels.length * 2);
+            for(int i = 0; i < hotels.length; i++){
+                prices[i] = hotels[i].getPricePerNight();
+                capacities[i] = hotels[i].getRoomsAvailable();
+                districts[i] = hotels[i].getDistrict() == null ? "" : hotels[i].getDistrict().toLowerCase(Locale.ROOT);
+                rankById.put(hotels[i].getHotelId(), i);
+            }
+        }
+
+        int size(){
+            return hotels.length;
+        }
+
+        boolean fits(int rank, int rooms, double maxPrice){
+            return capacities[rank] >= rooms && prices[rank] <= maxPrice;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.dto.BookingLineRequest;
+import com.hotelbooking.dto.BookingLineResult;
+import com.hotelbooking.entity.Booking;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.User;
+import com.hotelbooking.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Group and corporate bookings. Every user referenced by the batch is loaded with one
+// query, hotels come from the catalog cache, inventory for all lines is reserved together, and the
+// bookings are written in a single transaction.
+@Service
+public class BatchBookingService {
+
+    public static final int MAX_LINES = 500;
+
+    private final UserRepository userRepository;
+    private final HotelCatalogCache catalogCache;
+    private final ReservationEngine reservationEngine;
+    private final CurrencyConversionService currencyConversionService;
+    private final OfferCache offerCache;
+
+    public BatchBookingService(UserRepository userRepository, HotelCatalogCache catalogCache,
+                               ReservationEngine reservationEngine, CurrencyConversionService currencyConversionService,
+                               OfferCache offerCache){
+        this.userRepository = userRepository;
+        this.catalogCache = catalogCache;
+        this.reservationEngine = reservationEngine;
+        this.currencyConversionService = currencyConversionService;
+        this.offerCache = offerCache;
+    }
+
+    // With atomic set, either every line is booked or none is
+    public List<BookingLineResult> book(List<BookingLineRequest> lines, boolean atomic){
+        Set<Long> userIds = new HashSet<>();
+        for(BookingLineRequest line : lines){
+            if(line != null && line.userId() != null) userIds.add(line.userId());
+        }
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+            .collect(Collectors.toMap(User::getUserId, Function.identity()));
+        Map<Long, Hotel> hotels = catalogCache.snapshot().byId();
+
+        ExchangeRates rates = currencyConversionService.current();
+        BookingLineResult[] results = new BookingLineResult[lines.size()];
+        List<Booking> candidates = new ArrayList<>();
+        List<Integer> candidateLines = new ArrayList<>();
+        for(int i = 0; i < lines.size(); i++){
+            BookingLineRequest line = lines.get(i);
+            if(line == null){
+                results[i] = BookingLineResult.rejected(i, "Empty line");
+                continue;
+            }
+            // Each line is checked on its own, so one bad line can't fail the whole request
+            if(line.checkIn() == null || line.checkOut() == null){
+                results[i] = BookingLineResult.rejected(i, "Missing dates");
+                continue;
+            }
+            User user = users.get(line.userId());
+            Hotel hotel = hotels.get(line.hotelId());
+            if(user == null || hotel == null){
+                results[i] = BookingLineResult.rejected(i, user == null ? "Unknown user" : "Unknown hotel");
+                continue;
+            }
+            String currency = line.currency() == null ? "USD" : line.currency();
+            if(!rates.supports(currency)){
+                results[i] = BookingLineResult.rejected(i, "Unsupported currency");
+                continue;
+            }
+            try {
+                candidates.add(toBooking(line, user, hotel, currency, rates, offerCache.bestDiscountForHotel(hotel.getHotelId())));
+                candidateLines.add(i);
+            } catch (DateTimeParseException e) {
+                results[i] = BookingLineResult.rejected(i, "Invalid dates");
+            }
+        }
+
+        if(atomic && candidates.size() < lines.size()){
+            return abandoned(results);
+        }
+
+        List<Booking> saved = reservationEngine.reserveBatch(candidates, atomic);
+        for(int i = 0; i < saved.size(); i++){
+            int line = candidateLines.get(i);
+            results[line] = saved.get(i) != null
+                ? BookingLineResult.booked(line, saved.get(i))
+                : BookingLineResult.rejected(line, "Rooms not available");
+        }
+        return List.of(results);
+    }
+
+    private static Booking toBooking(BookingLineRequest line, User user, Hotel hotel, String currency, ExchangeRates rates,
+                                     double discount){
+        LocalDate inDate = LocalDate.parse(line.checkIn());
+        LocalDate outDate = LocalDate.parse(line.checkOut());
+        long nights = BookingPricing.nights(inDate, outDate);
+
+        BigDecimal baseAmount = BookingPricing.stayTotal(BigDecimal.valueOf(hotel.getPricePerNight()), nights, line.roomsBooked());
+        baseAmount = BookingPricing.discounted(baseAmount, discount);
+        BigDecimal totalAmount = rates.convert(baseAmount, "USD", currency);
+
+        Booking booking = new Booking();
+        booking.setOrderId(UUID.randomUUID().toString());
+        booking.setUser(user);
+        booking.setHotel(hotel);
+        booking.setCheckIn(inDate);
+        booking.setCheckOut(outDate);
+        booking.setRoomsBooked(line.roomsBooked());
+        booking.setTotalAmount(totalAmount);
+        booking.setCurrency(currency);
+        booking.setStatus("pending");
+        return booking;
+    }
+
+    // Marks every line that was otherwise valid as not booked because another line failed
+    private static List<BookingLineResult> abandoned(BookingLineResult[] results){
+        for(int i = 0; i < results.length; i++){
+            if(results[i] == null) results[i] = BookingLineResult.rejected(i, "Batch not booked");
+        }
+        return List.of(results);
+    }
+}
@@ -0,0 +1,242 @@
+package com.hotelbooking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Revenue and occupancy counters per hotel and day, kept up to date from booking changes
+// so the admin dashboard never scans the booking table. Occupancy counts the rooms held
+// on each night of a stay; bookings, room-nights, revenue and status counts are attributed
+// to the check-in day. Revenue only counts paid bookings, in the booking's own currency.
+@Component
+public class BookingAggregates {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingAggregates.class);
+
+    public record DayTotals(LocalDate day, long occupiedRooms, long bookings, long roomNights,
+                            Map<String, BigDecimal> revenue, Map<String, Long> statuses) {
+    }
+
+    private final BookingEventPublisher bookingEvents;
+    private final Object changeLock = new Object();
+    private volatile Days days = new Days();
+    // Changes seen while a rebuild is reading the booking table, replayed onto its result
+    private List<BookingEventPublisher.Change> changesDuringRebuild;
+    // Orders changed while a rebuild is reading, and the rows it read for them after that
+    private Set<String> changedDuringRebuild;
+    private Map<String, BookingEventPublisher.Fact> readDuringRebuild;
+
+    public BookingAggregates(BookingEventPublisher bookingEvents){
+        this.bookingEvents = bookingEvents;
+    }
+
+    // The dashboard covers past stays too, which the publisher no longer keeps, so the first
+    // build reads the table like the nightly rebuild, with changes made meanwhile replayed
+    @EventListener(ApplicationReadyEvent.class)
+    public void build(){
+        rebuild(false);
+    }
+
+    @EventListener
+    public void onChange(BookingEventPublisher.Change change){
+        synchronized(changeLock){
+            apply(days, change);
+            if(changesDuringRebuild != null){
+                changesDuringRebuild.add(change);
+                changedDuringRebuild.add(change.current().orderId());
+            }
+        }
+    }
+
+    // Recomputes everything from the booking table and reports how many hotels had drifted
+    @Scheduled(cron = "${dashboard.rebuild-cron:0 30 3 * * *}")
+    public int rebuild(){
+        return rebuild(true);
+    }
+
+    private int rebuild(boolean reportDrift){
+        synchronized(changeLock){
+            if(changesDuringRebuild != null) return 0;
+            changesDuringRebuild = new ArrayList<>();
+            changedDuringRebuild = new HashSet<>();
+            readDuringRebuild = new HashMap<>();
+        }
+        try {
+            // Streamed, so only the aggregates and the rows of orders changed meanwhile are held
+            Days built = new Days();
+            bookingEvents.forEachFact(fact -> {
+                add(built, fact, 1);
+                if(fact.orderId() == null) return;
+                synchronized(changeLock){
+                    if(changedDuringRebuild.contains(fact.orderId())) readDuringRebuild.put(fact.orderId(), fact);
+                }
+            });
+
+            synchronized(changeLock){
+                // A change may or may not be in what was read; either way the order ends up at its
+                // latest state. A row read before the order's first change here is taken as that
+                // change's before; one read between a commit and its publication is off until the
+                // next rebuild.
+                for(BookingEventPublisher.Change change : changesDuringRebuild){
+                    String orderId = change.current().orderId();
+                    BookingEventPublisher.Fact seen = readDuringRebuild.containsKey(orderId)
+                        ? readDuringRebuild.get(orderId) : change.before();
+                    if(Objects.equals(seen, change.after())) continue;
+                    apply(built, new BookingEventPublisher.Change(seen, change.after()));
+                    readDuringRebuild.put(orderId, change.after());
+                }
+
+                int drifted = reportDrift ? drifted(built) : 0;
+                if(drifted > 0) log.warn("Dashboard aggregates had drifted for {} hotels, replaced", drifted);
+                days = built;
+                return drifted;
+            }
+        } finally {
+            synchronized(changeLock){
+                changesDuringRebuild = null;
+                changedDuringRebuild = null;
+                readDuringRebuild = null;
+            }
+        }
+    }
+
+    private int drifted(Days built){
+        int drifted = 0;
+        Map<Long, HotelDays> current = days.byHotel;
+        for(Long hotelId : union(built.byHotel, current)){
+            HotelDays fresh = built.byHotel.get(hotelId);
+            HotelDays was = current.get(hotelId);
+            if(fresh == null ? was != null && !was.isEmpty() : !fresh.sameAs(was)) drifted++;
+        }
+        return drifted;
+    }
+
+    // One row per day with activity, between from and to inclusive
+    public List<DayTotals> hotelRange(Long hotelId, LocalDate from, LocalDate to){
+        HotelDays hotel = days.byHotel.get(hotelId);
+        return hotel == null ? List.of() : hotel.range(from.toEpochDay(), to.toEpochDay());
+    }
+
+    // Every hotel's days folded together, kept up to date alongside the per-hotel ones
+    public List<DayTotals> totalRange(LocalDate from, LocalDate to){
+        return days.all.range(from.toEpochDay(), to.toEpochDay());
+    }
+
+    private static void apply(Days target, BookingEventPublisher.Change change){
+        if(change.before() != null) add(target, change.before(), -1);
+        if(change.after() != null) add(target, change.after(), 1);
+    }
+
+    private static void add(Days target, BookingEventPublisher.Fact fact, int sign){
+        if(fact.hotelId() == null || fact.checkIn() == null || fact.checkOut() == null) return;
+        target.byHotel.computeIfAbsent(fact.hotelId(), id -> new HotelDays()).add(fact, sign);
+        target.all.add(fact, sign);
+    }
+
+    private static List<Long> union(Map<Long, HotelDays> a, Map<Long, HotelDays> b){
+        List<Long> ids = new ArrayList<>(a.keySet());
+        for(Long id : b.keySet()){
+            if(!a.containsKey(id)) ids.add(id);
+        }
+        return ids;
+    }
+
+    private static final class Days {
+        final ConcurrentHashMap<Long, HotelDays> byHotel = new ConcurrentHashMap<>();
+        final HotelDays all = new HotelDays();
+    }
+
+    private static final class HotelDays {
+
+        private final TreeMap<Long, Counters> days = new TreeMap<>();
+
+        synchronized void add(BookingEventPublisher.Fact fact, int sign){
+            long first = fact.checkIn().toEpochDay();
+            long nights = BookingPricing.nights(fact.checkIn(), fact.checkOut());
+            String status = fact.status() == null ? "unknown" : fact.status().toLowerCase();
+
+            Counters checkInDay = days.computeIfAbsent(first, d -> new Counters());
+            checkInDay.bookings += sign;
+            checkInDay.roomNights += sign * nights * fact.rooms();
+            checkInDay.statuses.merge(status, (long) sign, Long::sum);
+            if("paid".equals(status) && fact.totalAmount() != null && fact.currency() != null){
+                BigDecimal amount = sign > 0 ? fact.totalAmount() : fact.totalAmount().negate();
+                checkInDay.revenue.merge(fact.currency(), amount, BigDecimal::add);
+            }
+            if(RoomInventoryLedger.holdsRooms(fact.status())){
+                for(long day = first; day < first + nights; day++){
+                    days.computeIfAbsent(day, d -> new Counters()).occupiedRooms += (long) sign * fact.rooms();
+                }
+            }
+            for(long day = first; day < first + nights; day++){
+                Counters counters = days.get(day);
+                if(counters != null && counters.isEmpty()) days.remove(day);
+            }
+        }
+
+        synchronized List<DayTotals> range(long from, long to){
+            List<DayTotals> rows = new ArrayList<>();
+            days.subMap(from, true, to, true).forEach((day, counters) -> rows.add(counters.totals(day)));
+            return rows;
+        }
+
+        synchronized boolean isEmpty(){
+            return days.isEmpty();
+        }
+
+        synchronized boolean sameAs(HotelDays other){
+            if(other == null) return days.isEmpty();
+            synchronized(other){
+                if(!days.keySet().equals(other.days.keySet())) return false;
+                for(Map.Entry<Long, Counters> entry : days.entrySet()){
+                    if(!entry.getValue().sameAs(other.days.get(entry.getKey()))) return false;
+                }
+                return true;
+            }
+        }
+    }
+
+    private static final class Counters {
+        long occupiedRooms;
+        long bookings;
+        long roomNights;
+        final Map<String, BigDecimal> revenue = new TreeMap<>();
+        final Map<String, Long> statuses = new TreeMap<>();
+
+        boolean isEmpty(){
+            statuses.values().removeIf(count -> count == 0);
+            revenue.values().removeIf(amount -> amount.signum() == 0);
+            return occupiedRooms == 0 && bookings == 0 && roomNights == 0 && statuses.isEmpty() && revenue.isEmpty();
+        }
+
+        boolean sameAs(Counters other){
+            isEmpty();
+            other.isEmpty();
+            if(occupiedRooms != other.occupiedRooms || bookings != other.bookings || roomNights != other.roomNights) return false;
+            if(!statuses.equals(other.statuses) || !revenue.keySet().equals(other.revenue.keySet())) return false;
+            for(Map.Entry<String, BigDecimal> entry : revenue.entrySet()){
+                if(entry.getValue().compareTo(other.revenue.get(entry.getKey())) != 0) return false;
+            }
+            return true;
+        }
+
+        DayTotals totals(long day){
+            return new DayTotals(LocalDate.ofEpochDay(day), occupiedRooms, bookings, roomNights,
+                Map.copyOf(revenue), Map.copyOf(statuses));
+        }
+    }
+}
@@ -1,197 +1,249 @@
 package com.hotelbooking.controller;
 
+import com.hotelbooking.dto.BookingLineRequest;
+import com.hotelbooking.dto.BookingLineResult;
+import com.hotelbooking.dto.BookingSummary;
+import com.hotelbooking.dto.BookingView;
 import com.hotelbooking.entity.Booking;
 import com.hotelbooking.entity.Hotel;
 import com.hotelbooking.entity.User;
-import com.hotelbooking.repository.HotelRepository;
 import com.hotelbooking.repository.UserRepository;
+import com.hotelbooking.security.RequiresRole;
+import com.hotelbooking.service.AdminExportService;
+import com.hotelbooking.service.BatchBookingService;
+import com.hotelbooking.service.BookingPricing;
+import com.hotelbooking.service.BookingEventPublisher;
+import com.hotelbooking.service.BookingEventStream;
+import com.hotelbooking.service.BookingExpiryScheduler;
 import com.hotelbooking.service.BookingService;
+import com.hotelbooking.service.BookingViews;
+import com.hotelbooking.service.CurrencyConversionService;
+import com.hotelbooking.service.ExchangeRates;
+import com.hotelbooking.service.HotelCatalogCache;
+import com.hotelbooking.service.IdempotencyStore;
+import com.hotelbooking.service.OfferCache;
+import com.hotelbooking.service.ReservationEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/bookings")
 @CrossOrigin(origins = "*")
 public class BookingController {
 
+    private static final Logger log = LoggerFactory.getLogger(BookingController.class);
+
     private final BookingService bookingService;
     private final UserRepository userRepository;
-    private final HotelRepository hotelRepository;
+    private final ReservationEngine reservationEngine;
+    private final AdminExportService exportService;
+    private final BatchBookingService batchBookingService;
+    private final CurrencyConversionService currencyConversionService;
+    private final HotelCatalogCache catalogCache;
+    private final IdempotencyStore idempotencyStore;
+    private final BookingExpiryScheduler expiryScheduler;
+    private final BookingEventPublisher bookingEvents;
+    private final BookingViews bookingViews;
+    private final BookingEventStream eventStream;
+    private final OfferCache offerCache;
 
-    public BookingController(BookingService bookingService, UserRepository userRepository, HotelRepository hotelRepository){
+    public BookingController(BookingService bookingService, UserRepository userRepository,
+                             ReservationEngine reservationEngine,
+                             AdminExportService exportService, BatchBookingService batchBookingService,
+                             CurrencyConversionService currencyConversionService, HotelCatalogCache catalogCache,
+                             IdempotencyStore idempotencyStore, BookingExpiryScheduler expiryScheduler,
+                             BookingEventPublisher bookingEvents, BookingViews bookingViews,
+                             BookingEventStream eventStream, OfferCache offerCache){
         this.bookingService = bookingService;
         this.userRepository = userRepository;
-        this.hotelRepository = hotelRepository;
+        this.reservationEngine = reservationEngine;
+        this.exportService = exportService;
+        this.batchBookingService = batchBookingService;
+        this.currencyConversionService = currencyConversionService;
+        this.catalogCache = catalogCache;
+        this.idempotencyStore = idempotencyStore;
+        this.expiryScheduler = expiryScheduler;
+        this.bookingEvents = bookingEvents;
+        this.bookingViews = bookingViews;
+        this.eventStream = eventStream;
+        this.offerCache = offerCache;
     }
 
     @GetMapping("/user/{userId}")
-    public List<Booking> getUserBookings(@PathVariable Long userId){
-        return bookingService.findByUserId(userId);
+    public List<BookingView> getUserBookings(@PathVariable Long userId){
+        return bookingViews.forUser(userId);
+    }
+
+    // Pushes the user's booking status changes instead of having clients poll getUserBookings.
+    // Reconnecting clients send Last-Event-ID (or ?after=) to pick up what they missed.
+    @GetMapping(value = "/user/{userId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserEvents(@PathVariable Long userId,
+                                       @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                       @RequestParam(required = false) String after){
+        // An ID from an earlier run, or one that doesn't parse, gets a reset event
+        String resumeFrom = lastEventId != null ? lastEventId.trim() : after;
+        return eventStream.subscribe(userId, resumeFrom);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Booking> updateBooking(@PathVariable Long id, @RequestBody Booking booking){
+    public ResponseEntity<BookingView> updateBooking(@PathVariable Long id, @RequestBody Booking booking){
         try {
-            // Get the original booking to compare room counts
             Optional<Booking> originalOpt = bookingService.findById(id);
             if(originalOpt.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
             
-            Booking original = originalOpt.get();
-            int originalRooms = original.getRoomsBooked();
-            int newRooms = booking.getRoomsBooked();
-            
-            // If room count changed, update hotel availability
-            if(originalRooms != newRooms) {
-                Hotel hotel = original.getHotel();
-                int roomDifference = newRooms - originalRooms;
-                
-                // Check if hotel has enough rooms for increase
-                if(roomDifference > 0 && hotel.getRoomsAvailable() < roomDifference) {
-                    return ResponseEntity.badRequest().build();
-                }
-                
-                // Update hotel room availability
-                hotel.setRoomsAvailable(hotel.getRoomsAvailable() - roomDifference);
-                hotelRepository.save(hotel);
+            // Moves the reservation across the nightly inventory if the stay changed
+            Optional<Booking> saved = expiryScheduler.changeStay(originalOpt.get(), booking);
+            if(saved.isEmpty()) {
+                return ResponseEntity.badRequest().build();
             }
-            
-            booking.setBookingId(id);
-            return ResponseEntity.ok(bookingService.saveBooking(booking));
+            return ResponseEntity.ok(BookingView.of(saved.get()));
         } catch (Exception e) {
-            System.err.println("Error updating booking: " + e.getMessage());
+            log.error("Error updating booking {}", id, e);
             return ResponseEntity.status(500).build();
         }
     }
 
     @DeleteMapping("/{id}")
+    @RequiresRole(value = {"ADMIN", "SUB_ADMIN"}, optional = true)
     public ResponseEntity<Void> cancelBooking(@PathVariable Long id, @RequestParam(required = false) Long adminId){
         try {
-            System.out.println("Deleting booking ID: " + id + ", Admin ID: " + adminId);
-            
-            // If adminId is provided, validate admin access
-            if(adminId != null) {
-                Optional<User> adminOpt = userRepository.findById(adminId);
-                if(adminOpt.isEmpty()) {
-                    System.out.println("Admin not found with ID: " + adminId);
-                    return ResponseEntity.status(403).build();
-                }
-                String role = adminOpt.get().getRole();
-                if(!"ADMIN".equals(role) && !"SUB_ADMIN".equals(role)) {
-                    System.out.println("User is not admin, role: " + role);
-                    return ResponseEntity.status(403).build();
-                }
-                System.out.println("Admin validation passed for role: " + role);
-            }
+            log.info("Deleting booking {}, admin {}", id, adminId);
             
             // Get booking details before deletion to restore room availability
             Optional<Booking> bookingOpt = bookingService.findById(id);
             if(bookingOpt.isEmpty()) {
-                System.out.println("Booking not found with ID: " + id);
+                log.debug("Booking not found with ID: {}", id);
                 return ResponseEntity.notFound().build();
             }
             
             Booking booking = bookingOpt.get();
-            System.out.println("Found booking: " + booking.getBookingId() + ", rooms: " + booking.getRoomsBooked());
+            log.debug("Found booking {}, rooms: {}", booking.getBookingId(), booking.getRoomsBooked());
             
-            Hotel hotel = booking.getHotel();
-            if(hotel != null) {
-                System.out.println("Restoring " + booking.getRoomsBooked() + " rooms to hotel: " + hotel.getHotelName());
-                
-                // Get fresh hotel data to avoid validation issues
-                Optional<Hotel> freshHotelOpt = hotelRepository.findById(hotel.getHotelId());
-                if(freshHotelOpt.isPresent()) {
-                    Hotel freshHotel = freshHotelOpt.get();
-                    freshHotel.setRoomsAvailable(freshHotel.getRoomsAvailable() + booking.getRoomsBooked());
-                    hotelRepository.save(freshHotel);
-                    System.out.println("Hotel rooms updated successfully");
-                } else {
-                    System.out.println("Warning: Could not find fresh hotel data");
-                }
-            } else {
-                System.out.println("Warning: Booking has no associated hotel");
+            if(booking.getHotel() == null) {
+                log.warn("Booking {} has no associated hotel", id);
             }
             
-            bookingService.deleteBooking(id);
-            System.out.println("Booking deleted successfully");
+            // Rooms go back only once the delete has gone through
+            if(!expiryScheduler.cancel(booking)) {
+                return ResponseEntity.notFound().build();
+            }
             return ResponseEntity.ok().build();
             
         } catch (Exception e) {
-            System.err.println("Error deleting booking: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error deleting booking {}", id, e);
             return ResponseEntity.status(500).build();
         }
     }
 
     @GetMapping("/admin/all")
-    public List<Booking> getAllBookings(@RequestParam Long adminId){
-        Optional<User> userOpt = userRepository.findById(adminId);
-        if(userOpt.isEmpty()) {
-            System.out.println("Admin not found for getAllBookings: " + adminId);
-            return List.of();
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public List<BookingView> getAllBookings(@RequestParam Long adminId){
+        log.debug("Loading all bookings for admin {}", adminId);
+        return bookingViews.all();
+    }
+
+    @GetMapping("/admin/page")
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<List<BookingSummary>> getBookingPage(@RequestParam Long adminId,
+                                                               @RequestParam(defaultValue = "0") long after,
+                                                               @RequestParam(defaultValue = "100") int limit){
+        List<BookingSummary> page = exportService.bookingPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.size() == AdminExportService.clampLimit(limit)){
+            response.header("X-Next-After", String.valueOf(page.get(page.size() - 1).bookingId()));
         }
-        String role = userOpt.get().getRole();
-        if(!"ADMIN".equals(role) && !"SUB_ADMIN".equals(role)){
-            System.out.println("Insufficient permissions for getAllBookings, role: " + role);
-            return List.of();
+        return response.body(page);
+    }
+
+    @GetMapping("/admin/export")
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<StreamingResponseBody> exportBookings(@RequestParam Long adminId,
+                                                                @RequestParam(defaultValue = "ndjson") String format){
+        AdminExportService.Format exportFormat;
+        try {
+            exportFormat = AdminExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        System.out.println("Loading all bookings for admin: " + adminId + ", role: " + role);
-        return bookingService.getAllBookings();
+        StreamingResponseBody body = out -> exportService.exportBookings(out, exportFormat);
+        return ResponseEntity.ok()
+            .contentType(exportFormat == AdminExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
     }
 
     @PutMapping("/admin/{id}/status")
-    public ResponseEntity<Booking> updateBookingStatus(@RequestParam Long adminId, @PathVariable Long id, @RequestParam String status){
-        Optional<User> userOpt = userRepository.findById(adminId);
-        if(userOpt.isEmpty() || !"ADMIN".equals(userOpt.get().getRole())){
-            return ResponseEntity.status(403).build();
-        }
-        
+    @RequiresRole("ADMIN")
+    public ResponseEntity<BookingView> updateBookingStatus(@RequestParam Long adminId, @PathVariable Long id, @RequestParam String status){
         Optional<Booking> bookingOpt = bookingService.findById(id);
         if(bookingOpt.isEmpty()) return ResponseEntity.notFound().build();
         
-        Booking booking = bookingOpt.get();
-        booking.setStatus(status);
-        return ResponseEntity.ok(bookingService.saveBooking(booking));
+        Optional<Booking> saved = expiryScheduler.changeStatus(bookingOpt.get(), status);
+        if(saved.isEmpty()) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(BookingView.of(saved.get()));
     }
 
     @PostMapping("/create")
-    public ResponseEntity<Booking> createBooking(@RequestParam Long userId,
+    public ResponseEntity<BookingView> createBooking(@RequestParam Long userId,
                                  @RequestParam Long hotelId,
                                  @RequestParam String checkIn,
                                  @RequestParam String checkOut,
                                  @RequestParam int roomsBooked,
-                                 @RequestParam(defaultValue = "USD") String currency) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        Optional<Hotel> hotelOpt = hotelRepository.findById(hotelId);
-
-        if(userOpt.isEmpty() || hotelOpt.isEmpty()){
+                                 @RequestParam(defaultValue = "USD") String currency,
+                                 @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if(idempotencyKey == null){
+            return placeBooking(userId, hotelId, checkIn, checkOut, roomsBooked, currency);
+        }
+        if(idempotencyKey.isBlank() || idempotencyKey.length() > 255){
             return ResponseEntity.badRequest().build();
         }
 
-        User user = userOpt.get();
-        Hotel hotel = hotelOpt.get();
-
-        // Check room availability
-        if(hotel.getRoomsAvailable() < roomsBooked){
-            return ResponseEntity.badRequest().build();
+        // A retry with the same key gets the original booking back without touching inventory
+        String fingerprint = hotelId + "|" + checkIn + "|" + checkOut + "|" + roomsBooked + "|" + currency;
+        try {
+            return idempotencyStore.execute(userId + ":" + idempotencyKey, fingerprint,
+                () -> placeBooking(userId, hotelId, checkIn, checkOut, roomsBooked, currency),
+                response -> response.getStatusCode().is2xxSuccessful());
+        } catch (IdempotencyStore.KeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (TimeoutException e) {
+            log.warn("Gave up waiting for in-flight booking with key {}", idempotencyKey);
+            return ResponseEntity.status(409).build();
         }
+    }
 
+    private ResponseEntity<BookingView> placeBooking(Long userId, Long hotelId, String checkIn, String checkOut,
+                                                 int roomsBooked, String currency){
+        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<Hotel> hotelOpt = catalogCache.findById(hotelId);
+        ExchangeRates rates = currencyConversionService.current();
         LocalDate inDate = LocalDate.parse(checkIn);
         LocalDate outDate = LocalDate.parse(checkOut);
-        long nights = Math.max(1, java.time.temporal.ChronoUnit.DAYS.between(inDate, outDate));
 
-        BigDecimal baseAmount = BigDecimal.valueOf(hotel.getPricePerNight()).multiply(BigDecimal.valueOf(nights * roomsBooked));
-        BigDecimal totalAmount = convertCurrency(baseAmount, "USD", currency);
+        if(userOpt.isEmpty() || hotelOpt.isEmpty() || !rates.supports(currency)){
+            return ResponseEntity.badRequest().build();
+        }
 
-        // Reduce room availability
-        hotel.setRoomsAvailable(hotel.getRoomsAvailable() - roomsBooked);
-        hotelRepository.save(hotel);
+        User user = userOpt.get();
+        Hotel hotel = hotelOpt.get();
+        long nights = BookingPricing.nights(inDate, outDate);
+
+        BigDecimal baseAmount = BookingPricing.stayTotal(BigDecimal.valueOf(hotel.getPricePerNight()), nights, roomsBooked);
+        baseAmount = BookingPricing.discounted(baseAmount, offerCache.bestDiscountForHotel(hotelId));
+        BigDecimal totalAmount = rates.convert(baseAmount, "USD", currency);
 
         Booking booking = new Booking();
         booking.setOrderId(UUID.randomUUID().toString());
@@ -204,25 +256,21 @@ public class BookingController {
         booking.setCurrency(currency);
         booking.setStatus("pending");
 
-        Booking savedBooking = bookingService.saveBooking(booking);
-        return ResponseEntity.ok(savedBooking);
+        // Reserve the rooms on every night of the stay
+        return reservationEngine.reserve(booking)
+            .map(saved -> ResponseEntity.ok().header("X-Rate-Version", Long.toString(rates.version())).body(BookingView.of(saved)))
+            .orElseGet(() -> ResponseEntity.badRequest().build());
     }
-    
-    private BigDecimal convertCurrency(BigDecimal amount, String fromCurrency, String toCurrency) {
-        if (fromCurrency.equals(toCurrency)) {
-            return amount;
-        }
-        
-        // Simple conversion rate: 1 USD = 320 LKR (you can make this dynamic)
-        BigDecimal usdToLkrRate = BigDecimal.valueOf(320);
-        
-        if ("USD".equals(fromCurrency) && "LKR".equals(toCurrency)) {
-            return amount.multiply(usdToLkrRate);
-        } else if ("LKR".equals(fromCurrency) && "USD".equals(toCurrency)) {
-            return amount.divide(usdToLkrRate, 2, BigDecimal.ROUND_HALF_UP);
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<BookingLineResult>> createBookings(@RequestBody List<BookingLineRequest> lines,
+                                                                  @RequestParam(defaultValue = "true") boolean atomic){
+        if(lines.isEmpty() || lines.size() > BatchBookingService.MAX_LINES){
+            return ResponseEntity.badRequest().build();
         }
-        
-        return amount;
+        List<BookingLineResult> results = batchBookingService.book(lines, atomic);
+        boolean anyBooked = results.stream().anyMatch(result -> result.booking() != null);
+        return anyBooked ? ResponseEntity.ok(results) : ResponseEntity.badRequest().body(results);
     }
 }
 
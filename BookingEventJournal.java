@@ -0,0 +1,90 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// In-memory journal of booking status transitions: creation, every status change and
+// deletion. Entries get consecutive offsets and live in a fixed ring, so the journal
+// holds the most recent capacity transitions and readers can resume after any offset
+// that is still in it. Offsets restart at 1 with every run, so IDs handed to clients
+// carry a per-run epoch as well.
+@Component
+public class BookingEventJournal {
+
+    public record Entry(long offset, Long userId, String orderId, Long bookingId,
+                        String previousStatus, String status, long at) {
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Entry[] ring;
+    private final List<Consumer<Entry>> listeners = new ArrayList<>();
+    private long nextOffset = 1;
+
+    public BookingEventJournal(MetricsRegistry metricsRegistry,
+                               @Value("${bookings.events.journal-size:100000}") int capacity){
+        this.ring = new Entry[capacity];
+        metricsRegistry.gauge("booking_event_journal_offset", this::lastOffset);
+    }
+
+    // Called for each appended entry, in offset order, on the appending thread
+    public synchronized void addListener(Consumer<Entry> listener){
+        listeners.add(listener);
+    }
+
+    @EventListener
+    public void onChange(BookingEventPublisher.Change change){
+        String before = change.before() == null ? null : change.before().status();
+        String after = change.after() == null ? "deleted" : change.after().status();
+        if(before != null && after != null && after.equalsIgnoreCase(before)) return;
+        BookingEventPublisher.Fact fact = change.current();
+        append(fact.userId(), fact.orderId(), fact.bookingId(), before, after);
+    }
+
+    public synchronized Entry append(Long userId, String orderId, Long bookingId, String previousStatus, String status){
+        Entry entry = new Entry(nextOffset++, userId, orderId, bookingId, previousStatus, status, System.currentTimeMillis());
+        ring[(int) (entry.offset() % ring.length)] = entry;
+        for(Consumer<Entry> listener : listeners){
+            listener.accept(entry);
+        }
+        return entry;
+    }
+
+    public synchronized long lastOffset(){
+        return nextOffset - 1;
+    }
+
+    public String eventId(long offset){
+        return epoch + "-" + offset;
+    }
+
+    // Offset named by an event ID from this run; -1 for an ID from another run or a
+    // malformed one, which tells the caller nothing about what the client has seen
+    public long offsetOf(String eventId){
+        int dash = eventId.lastIndexOf('-');
+        if(dash < 0 || !epoch.equals(eventId.substring(0, dash))) return -1;
+        try {
+            long offset = Long.parseLong(eventId.substring(dash + 1));
+            return offset < 0 ? -1 : offset;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Entries for a user after the given offset, oldest first; null when entries after it
+    // have already been overwritten and the caller has to start over from a full read
+    public synchronized List<Entry> since(Long userId, long after){
+        long oldest = Math.max(1, nextOffset - ring.length);
+        if(after + 1 < oldest) return null;
+        List<Entry> entries = new ArrayList<>();
+        for(long offset = after + 1; offset < nextOffset; offset++){
+            Entry entry = ring[(int) (offset % ring.length)];
+            if(userId.equals(entry.userId())) entries.add(entry);
+        }
+        return entries;
+    }
+}
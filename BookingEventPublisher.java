@@ -0,0 +1,196 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Booking;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Publishes a Change (the booking before and after) whenever a booking is written. Only the
+// facts derived views need are kept per order, so status-only updates such as payment
+// callbacks, which never load the booking, still carry the full before and after. Changes
+// made inside a transaction are published once it commits; changes to one order are
+// published in the order they were made. Facts are only kept for stays that ended less
+// than bookings.events.retain-days ago; a change to an older booking has no known before,
+// so it is not published and the dashboard's nightly rebuild picks it up.
+@Component
+public class BookingEventPublisher {
+
+    public record Fact(String orderId, Long bookingId, Long userId, Long hotelId, LocalDate checkIn, LocalDate checkOut,
+                       int rooms, BigDecimal totalAmount, String currency, String status) {
+
+        public static Fact of(Booking booking){
+            return new Fact(booking.getOrderId(), booking.getBookingId(),
+                booking.getUser() == null ? null : booking.getUser().getUserId(),
+                booking.getHotel() == null ? null : booking.getHotel().getHotelId(),
+                booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked(),
+                booking.getTotalAmount(), booking.getCurrency(), booking.getStatus());
+        }
+
+        public Fact withStatus(String newStatus){
+            return new Fact(orderId, bookingId, userId, hotelId, checkIn, checkOut, rooms, totalAmount, currency, newStatus);
+        }
+    }
+
+    // before is null for a new booking, after is null for a deleted one
+    public record Change(Fact before, Fact after) {
+        public Fact current(){
+            return after != null ? after : before;
+        }
+    }
+
+    private static final int STRIPES = 64;
+    private static final int FETCH_SIZE = 500;
+    private static final String SELECT_FACTS =
+        "select b.orderId, b.bookingId, u.userId, h.hotelId, b.checkIn, b.checkOut, b.roomsBooked, "
+        + "b.totalAmount, b.currency, b.status from Booking b left join b.user u left join b.hotel h ";
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final int retainDays;
+    private final ConcurrentHashMap<String, Fact> facts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookingEventPublisher(ApplicationEventPublisher eventPublisher,
+                                 @Value("${bookings.events.retain-days:30}") int retainDays){
+        this.eventPublisher = eventPublisher;
+        this.retainDays = retainDays;
+        for(int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Loaded before the web server starts; the inventory ledger and expiry holds start from these
+    @PostConstruct
+    public void loadExistingBookings(){
+        for(Fact fact : readFacts(cutoff())){
+            if(fact.orderId() != null) facts.putIfAbsent(fact.orderId(), fact);
+        }
+    }
+
+    // Bookings whose stay hasn't ended, and those that ended within the retention window
+    public Iterable<Fact> facts(){
+        return facts.values();
+    }
+
+    // Streams the facts of every booking in the table through a cursor, without holding them
+    @Transactional(readOnly = true)
+    public void forEachFact(Consumer<Fact> action){
+        try(Stream<Object[]> rows = entityManager.createQuery(SELECT_FACTS, Object[].class)
+                .setHint("org.hibernate.fetchSize", FETCH_SIZE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()){
+            rows.map(BookingEventPublisher::toFact).forEach(action);
+        }
+    }
+
+    // Reads facts straight from the booking table, for stays ending on or after endingFrom
+    private List<Fact> readFacts(LocalDate endingFrom){
+        return entityManager.createQuery(SELECT_FACTS + "where b.checkOut >= :endingFrom", Object[].class)
+            .setParameter("endingFrom", endingFrom)
+            .setHint("org.hibernate.readOnly", true)
+            .getResultStream().map(BookingEventPublisher::toFact).toList();
+    }
+
+    @Scheduled(cron = "${bookings.events.prune-cron:0 15 0 * * *}")
+    public void pruneEndedStays(){
+        LocalDate cutoff = cutoff();
+        for(Fact fact : facts.values()){
+            if(fact.checkOut() == null || !fact.checkOut().isBefore(cutoff)) continue;
+            ReentrantLock lock = stripeFor(fact.orderId());
+            lock.lock();
+            try {
+                facts.remove(fact.orderId(), fact);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void saved(Booking booking){
+        if(booking.getOrderId() == null) return;
+        Fact after = Fact.of(booking);
+        afterCommit(() -> apply(after.orderId(), after));
+    }
+
+    public void statusChanged(String orderId, String status){
+        afterCommit(() -> {
+            ReentrantLock lock = stripeFor(orderId);
+            lock.lock();
+            try {
+                Fact before = facts.get(orderId);
+                if(before == null || status.equalsIgnoreCase(before.status())) return;
+                Fact after = before.withStatus(status);
+                facts.put(orderId, after);
+                eventPublisher.publishEvent(new Change(before, after));
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    public void removed(String orderId){
+        if(orderId == null) return;
+        afterCommit(() -> apply(orderId, null));
+    }
+
+    private void apply(String orderId, Fact after){
+        ReentrantLock lock = stripeFor(orderId);
+        lock.lock();
+        try {
+            Fact before = facts.get(orderId);
+            if(before == null && (after == null || isPastRetention(after))) return;
+            if(after == null) facts.remove(orderId);
+            else facts.put(orderId, after);
+            eventPublisher.publishEvent(new Change(before, after));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private LocalDate cutoff(){
+        return LocalDate.now().minusDays(retainDays);
+    }
+
+    // An unknown order this old was dropped from the facts rather than just created
+    private boolean isPastRetention(Fact fact){
+        return fact.checkOut() != null && fact.checkOut().isBefore(cutoff());
+    }
+
+    private static Fact toFact(Object[] row){
+        return new Fact((String) row[0], (Long) row[1], (Long) row[2], (Long) row[3], (LocalDate) row[4],
+            (LocalDate) row[5], ((Number) row[6]).intValue(), (BigDecimal) row[7], (String) row[8], (String) row[9]);
+    }
+
+    private static void afterCommit(Runnable action){
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization(){
+            @Override
+            public void afterCommit(){
+                action.run();
+            }
+        });
+    }
+
+    private ReentrantLock stripeFor(String orderId){
+        return stripes[(orderId.hashCode() * 0x9E3779B9 >>> 26) & (STRIPES - 1)];
+    }
+}
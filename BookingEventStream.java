@@ -0,0 +1,236 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.metrics.MetricsRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-user Server-Sent Events feed of booking status changes. Connections are async
+// servlet responses, so an idle subscriber holds no thread. A single dispatcher thread
+// decides what each subscriber gets: journal entries as they are appended, replays for
+// resuming clients, and periodic heartbeats that keep proxies from closing idle streams.
+// It only queues them in the subscriber's bounded outbox; a small writer pool does the
+// socket writes, and a client too slow to keep its outbox from filling is dropped.
+@Service
+public class BookingEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingEventStream.class);
+
+    private final class Subscriber {
+        final Long userId;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<SseEmitter.SseEventBuilder> outbox;
+        // Set while a writer owns the outbox
+        final AtomicBoolean writing = new AtomicBoolean();
+        // Newest offset queued for the client, -1 until a reset when it resumed from
+        // another run; only touched by the dispatcher
+        long lastSent;
+        volatile boolean closed;
+        // Live entries are held back until the replay has caught the subscriber up
+        volatile boolean replaying;
+
+        Subscriber(Long userId, SseEmitter emitter, long lastSent){
+            this.userId = userId;
+            this.emitter = emitter;
+            this.outbox = new ArrayBlockingQueue<>(outboxSize);
+            this.lastSent = lastSent;
+        }
+    }
+
+    private final BookingEventJournal journal;
+    private final long timeoutMillis;
+    private final long heartbeatMillis;
+    private final int outboxSize;
+    private final ExecutorService writers;
+    private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connected = new AtomicInteger();
+
+    private volatile boolean running = true;
+    private Thread dispatcher;
+
+    public BookingEventStream(BookingEventJournal journal, MetricsRegistry metricsRegistry,
+                              @Value("${bookings.events.stream-timeout-minutes:30}") long timeoutMinutes,
+                              @Value("${bookings.events.heartbeat-seconds:15}") long heartbeatSeconds,
+                              @Value("${bookings.events.outbox-size:256}") int outboxSize,
+                              @Value("${bookings.events.writer-threads:4}") int writerThreads){
+        this.journal = journal;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.heartbeatMillis = TimeUnit.SECONDS.toMillis(heartbeatSeconds);
+        this.outboxSize = outboxSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads, task -> {
+            Thread thread = new Thread(task, "booking-event-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        metricsRegistry.gauge("booking_event_subscribers", connected::get);
+    }
+
+    @PostConstruct
+    public void start(){
+        journal.addListener(entry -> tasks.add(() -> deliver(entry)));
+        dispatcher = new Thread(this::dispatch, "booking-event-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        writers.shutdownNow();
+        for(List<Subscriber> list : subscribers.values()){
+            for(Subscriber subscriber : list){
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    // lastEventId is the event ID the client saw last; null starts from now
+    public SseEmitter subscribe(Long userId, String lastEventId){
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(userId, emitter,
+            lastEventId == null ? journal.lastOffset() : journal.offsetOf(lastEventId));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        subscriber.replaying = lastEventId != null;
+        subscribers.compute(userId, (id, list) -> {
+            List<Subscriber> current = list == null ? new CopyOnWriteArrayList<>() : list;
+            current.add(subscriber);
+            return current;
+        });
+        connected.incrementAndGet();
+        if(subscriber.replaying) tasks.add(() -> replay(subscriber));
+        return emitter;
+    }
+
+    private void dispatch(){
+        long nextHeartbeat = System.currentTimeMillis() + heartbeatMillis;
+        while(running){
+            try {
+                Runnable task = tasks.poll(Math.max(1, nextHeartbeat - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if(task != null) task.run();
+                if(System.currentTimeMillis() >= nextHeartbeat){
+                    heartbeat();
+                    nextHeartbeat = System.currentTimeMillis() + heartbeatMillis;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Booking event dispatch failed", e);
+            }
+        }
+    }
+
+    private void deliver(BookingEventJournal.Entry entry){
+        if(entry.userId() == null) return;
+        List<Subscriber> list = subscribers.get(entry.userId());
+        if(list == null) return;
+        for(Subscriber subscriber : list){
+            if(!subscriber.replaying) send(subscriber, entry);
+        }
+    }
+
+    // Sends everything after the client's last seen offset, up to the newest entry
+    private void replay(Subscriber subscriber){
+        subscriber.replaying = false;
+        long newest = journal.lastOffset();
+        // A negative offset is an ID from another run; null means too far behind
+        List<BookingEventJournal.Entry> missed = subscriber.lastSent < 0 || subscriber.lastSent > newest ? null
+            : journal.since(subscriber.userId, subscriber.lastSent);
+        if(missed == null || missed.size() > outboxSize){
+            // The client reloads its bookings and carries on from here
+            if(enqueue(subscriber, SseEmitter.event().name("reset").id(journal.eventId(newest)).data(""))){
+                subscriber.lastSent = newest;
+            }
+            return;
+        }
+        for(BookingEventJournal.Entry entry : missed){
+            send(subscriber, entry);
+        }
+    }
+
+    private void send(Subscriber subscriber, BookingEventJournal.Entry entry){
+        // Entries that were replayed and then delivered live are only sent once
+        if(entry.offset() <= subscriber.lastSent) return;
+        if(enqueue(subscriber, SseEmitter.event().name("booking").id(journal.eventId(entry.offset())).data(entry))){
+            subscriber.lastSent = entry.offset();
+        }
+    }
+
+    private void heartbeat(){
+        for(List<Subscriber> list : subscribers.values()){
+            for(Subscriber subscriber : list){
+                enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    private boolean enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event){
+        if(subscriber.closed) return false;
+        if(!subscriber.outbox.offer(event)){
+            log.info("Dropping booking event subscriber for user {}: outbox full", subscriber.userId);
+            drop(subscriber);
+            return false;
+        }
+        if(subscriber.writing.compareAndSet(false, true)) writers.execute(() -> write(subscriber));
+        return true;
+    }
+
+    // Runs on a writer. A stalled client can pin one writer until its connection times out,
+    // but the dispatcher and every other subscriber's outbox keep moving.
+    private void write(Subscriber subscriber){
+        while(!subscriber.closed){
+            SseEmitter.SseEventBuilder event = subscriber.outbox.poll();
+            if(event == null){
+                subscriber.writing.set(false);
+                // Something may have been queued after the poll but before the flag was cleared
+                if(subscriber.outbox.isEmpty() || !subscriber.writing.compareAndSet(false, true)) return;
+                continue;
+            }
+            try {
+                subscriber.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                drop(subscriber);
+                return;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber){
+        if(subscriber.closed) return;
+        subscriber.closed = true;
+        subscriber.outbox.clear();
+        remove(subscriber);
+        subscriber.emitter.completeWithError(new IOException("Subscriber disconnected"));
+    }
+
+    private void remove(Subscriber subscriber){
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            if(list.remove(subscriber)) connected.decrementAndGet();
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,422 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Booking;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.metrics.MetricsRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Releases rooms held by pending bookings that are never paid. Each new booking gets a
+// hold with a deadline in a delay queue; a single worker takes holds as they fall due and
+// marks the booking expired if it is still pending. Payment and expiry both decide under
+// the order's lock from the booking's stored status, so whichever gets there first wins:
+// a payment for a booking that no longer holds rooms is re-reserved if they are still free.
+// Edits, admin status changes and deletes go through the same lock.
+@Service
+public class BookingExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingExpiryScheduler.class);
+
+    private static final int STRIPES = 64;
+    private static final long RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final BookingService bookingService;
+    private final RoomInventoryLedger inventoryLedger;
+    private final HotelCatalogCache catalogCache;
+    private final BookingEventPublisher bookingEvents;
+    private final TransactionTemplate transactionTemplate;
+    private final long holdMillis;
+
+    private final DelayQueue<Hold> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<String, Hold> holds = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong latePayments = new AtomicLong();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public BookingExpiryScheduler(BookingService bookingService, RoomInventoryLedger inventoryLedger,
+                                  HotelCatalogCache catalogCache, BookingEventPublisher bookingEvents,
+                                  PlatformTransactionManager transactionManager,
+                                  MetricsRegistry metricsRegistry,
+                                  @Value("${bookings.hold-minutes:30}") long holdMinutes){
+        this.bookingService = bookingService;
+        this.inventoryLedger = inventoryLedger;
+        this.catalogCache = catalogCache;
+        this.bookingEvents = bookingEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.holdMillis = TimeUnit.MINUTES.toMillis(holdMinutes);
+        for(int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+        }
+
+        metricsRegistry.gauge("booking_holds_pending", holds::size);
+        metricsRegistry.gauge("booking_held_unpaid_rooms", this::heldRooms);
+        metricsRegistry.gauge("bookings_expired", expiredCount::get);
+        metricsRegistry.gauge("booking_late_payments", latePayments::get);
+    }
+
+    @PostConstruct
+    public void start(){
+        worker = new Thread(this::drain, "booking-expiry-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    // Pending bookings from before a restart get a full hold window from now, as the
+    // booking row doesn't record when it was made
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPendingBookings(){
+        int loaded = 0;
+        // Pending bookings whose stay has already ended no longer hold anything worth expiring
+        for(BookingEventPublisher.Fact fact : bookingEvents.facts()){
+            if("pending".equalsIgnoreCase(fact.status())){
+                track(fact.orderId(), fact.bookingId(), fact.rooms());
+                loaded++;
+            }
+        }
+        if(loaded > 0) log.info("Tracking {} pending bookings for expiry", loaded);
+    }
+
+    // Starts the hold window for a newly reserved booking
+    public void track(Booking booking){
+        track(booking.getOrderId(), booking.getBookingId(), booking.getRoomsBooked());
+    }
+
+    private void track(String orderId, Long bookingId, int rooms){
+        Hold hold = new Hold(orderId, bookingId, rooms, System.currentTimeMillis() + holdMillis);
+        holds.put(hold.orderId, hold);
+        queue.add(hold);
+    }
+
+    // Stay or room-count edit, applied to the stored booking under the order's lock so
+    // expiry can't release the old stay while it is being moved. Hotel and status only
+    // change through their own paths. Returns empty when the booking is gone or the new
+    // stay doesn't fit.
+    public Optional<Booking> changeStay(Booking booking, Booking changes){
+        ReentrantLock lock = stripeFor(booking.getOrderId());
+        lock.lock();
+        try {
+            Optional<Booking> found = bookingService.findById(booking.getBookingId());
+            if(found.isEmpty()) return Optional.empty();
+            Booking current = found.get();
+            LocalDate newIn = changes.getCheckIn() != null ? changes.getCheckIn() : current.getCheckIn();
+            LocalDate newOut = changes.getCheckOut() != null ? changes.getCheckOut() : current.getCheckOut();
+            int newRooms = changes.getRoomsBooked();
+            boolean changed = current.getRoomsBooked() != newRooms
+                || !current.getCheckIn().equals(newIn) || !current.getCheckOut().equals(newOut);
+
+            Hotel hotel = hotelOf(current);
+            boolean moved = changed && hotel != null && RoomInventoryLedger.holdsRooms(current.getStatus());
+            if(moved && !inventoryLedger.move(hotel, current.getCheckIn(), current.getCheckOut(), current.getRoomsBooked(),
+                    newIn, newOut, newRooms)){
+                return Optional.empty();
+            }
+            changes.setBookingId(current.getBookingId());
+            changes.setHotel(current.getHotel());
+            changes.setStatus(current.getStatus());
+            changes.setCheckIn(newIn);
+            changes.setCheckOut(newOut);
+            Booking saved;
+            try {
+                saved = bookingService.saveBooking(changes);
+            } catch (RuntimeException e) {
+                if(moved){
+                    inventoryLedger.undoMove(hotel.getHotelId(), current.getCheckIn(), current.getCheckOut(),
+                        current.getRoomsBooked(), newIn, newOut, newRooms);
+                }
+                throw e;
+            }
+            Hold hold = saved.getOrderId() == null ? null : holds.get(saved.getOrderId());
+            if(hold != null) hold.rooms = newRooms;
+            bookingEvents.saved(saved);
+            return Optional.of(saved);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Admin status change, decided from the stored status under the order's lock like
+    // payment and expiry, so the rooms are released or taken back exactly once. Rooms are
+    // released only after the new status is stored. Returns empty when the booking is gone
+    // or its rooms can't be reserved again.
+    public Optional<Booking> changeStatus(Booking booking, String status){
+        ReentrantLock lock = stripeFor(booking.getOrderId());
+        lock.lock();
+        try {
+            Optional<Booking> found = bookingService.findById(booking.getBookingId());
+            if(found.isEmpty()) return Optional.empty();
+            Booking current = found.get();
+            Hotel hotel = hotelOf(current);
+            boolean held = RoomInventoryLedger.holdsRooms(current.getStatus());
+            boolean holding = RoomInventoryLedger.holdsRooms(status);
+            boolean reserved = hotel != null && !held && holding;
+            if(reserved && !inventoryLedger.reserve(hotel, current.getCheckIn(), current.getCheckOut(), current.getRoomsBooked())){
+                return Optional.empty();
+            }
+            Hold hold = claim(current.getOrderId());
+            current.setStatus(status);
+            Booking saved;
+            try {
+                saved = bookingService.saveBooking(current);
+            } catch (RuntimeException e) {
+                if(reserved) inventoryLedger.release(hotel.getHotelId(), current.getCheckIn(), current.getCheckOut(), current.getRoomsBooked());
+                if(hold != null) restore(hold);
+                throw e;
+            }
+            if(hotel != null && held && !holding){
+                inventoryLedger.release(hotel.getHotelId(), saved.getCheckIn(), saved.getCheckOut(), saved.getRoomsBooked());
+            }
+            // Back to pending: keep the running window, or start one if it had none
+            if(isPending(saved) && saved.getOrderId() != null){
+                if(hold != null) restore(hold);
+                else track(saved);
+            }
+            bookingEvents.saved(saved);
+            return Optional.of(saved);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Deletes a booking under the order's lock. Its rooms go back only once the delete has
+    // gone through. Returns false when it was already gone.
+    public boolean cancel(Booking booking){
+        ReentrantLock lock = stripeFor(booking.getOrderId());
+        lock.lock();
+        try {
+            Optional<Booking> found = bookingService.findById(booking.getBookingId());
+            if(found.isEmpty()) return false;
+            Booking current = found.get();
+            Hold hold = claim(current.getOrderId());
+            try {
+                bookingService.deleteBooking(current.getBookingId());
+            } catch (RuntimeException e) {
+                if(hold != null) restore(hold);
+                throw e;
+            }
+            if(current.getHotel() != null && RoomInventoryLedger.holdsRooms(current.getStatus())){
+                inventoryLedger.release(current.getHotel().getHotelId(), current.getCheckIn(), current.getCheckOut(), current.getRoomsBooked());
+            }
+            bookingEvents.removed(current.getOrderId());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called inside the payment transaction before a PayHere status is recorded. The
+    // decision rests on the booking's stored status: a booking that still holds rooms keeps
+    // them (and stops expiring once paid), one that doesn't (expired, failed, cancelled)
+    // has to get its rooms back from the ledger first. Returns false when it can't, in
+    // which case the status must not be recorded.
+    public boolean prepareTransition(String orderId, String status){
+        ReentrantLock lock = stripeFor(orderId);
+        lock.lock();
+        try {
+            Optional<Booking> found = findByOrderId(orderId);
+            if(found.isEmpty()){
+                log.warn("PayHere status {} for unknown order {}", status, orderId);
+                return false;
+            }
+            Booking booking = found.get();
+            boolean paid = "paid".equals(status);
+            if(RoomInventoryLedger.holdsRooms(booking.getStatus())){
+                if(paid){
+                    Hold hold = holds.remove(orderId);
+                    if(hold != null) onRollback(() -> restore(hold));
+                }
+                return true;
+            }
+
+            Hotel hotel = hotelOf(booking);
+            if(hotel == null || !inventoryLedger.reserve(hotel, booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked())){
+                log.warn("Order {} is {} and its rooms are gone, PayHere status {} not applied", orderId, booking.getStatus(), status);
+                return false;
+            }
+            latePayments.incrementAndGet();
+            Booking reserved = booking;
+            onCommit(() -> {
+                if(!paid) track(reserved);
+            }, () -> inventoryLedger.release(hotel.getHotelId(), reserved.getCheckIn(), reserved.getCheckOut(), reserved.getRoomsBooked()));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called when a payment fails: a booking that still holds rooms gives them back
+    public void releaseForFailedPayment(String orderId){
+        ReentrantLock lock = stripeFor(orderId);
+        lock.lock();
+        try {
+            Optional<Booking> found = findByOrderId(orderId);
+            if(found.isEmpty() || found.get().getHotel() == null || !RoomInventoryLedger.holdsRooms(found.get().getStatus())) return;
+            Booking b = found.get();
+            Hold hold = holds.remove(orderId);
+            onCommit(() -> inventoryLedger.release(b.getHotel().getHotelId(), b.getCheckIn(), b.getCheckOut(), b.getRoomsBooked()),
+                () -> {
+                    if(hold != null) restore(hold);
+                });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<Booking> findByOrderId(String orderId){
+        return entityManager.createQuery("select b from Booking b where b.orderId = :orderId", Booking.class)
+            .setParameter("orderId", orderId)
+            .getResultStream().findFirst();
+    }
+
+    // Capacity comes from the catalog, which sees hotel edits the booking row doesn't
+    private Hotel hotelOf(Booking booking){
+        return booking.getHotel() == null ? null
+            : catalogCache.findById(booking.getHotel().getHotelId()).orElse(booking.getHotel());
+    }
+
+    // Takes the order's hold so the expiry worker will skip it
+    private Hold claim(String orderId){
+        return orderId == null ? null : holds.remove(orderId);
+    }
+
+    private long heldRooms(){
+        long rooms = 0;
+        for(Hold hold : holds.values()){
+            rooms += hold.rooms;
+        }
+        return rooms;
+    }
+
+    private void drain(){
+        while(running){
+            try {
+                expire(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Booking expiry failed", e);
+            }
+        }
+    }
+
+    private void expire(Hold hold){
+        ReentrantLock lock = stripeFor(hold.orderId);
+        lock.lock();
+        try {
+            // Paid, failed, re-tracked or forgotten since it was queued
+            if(!holds.remove(hold.orderId, hold)) return;
+            RoomInventoryLedger.Stay stay;
+            try {
+                stay = transactionTemplate.execute(status -> {
+                    Optional<Booking> current = bookingService.findById(hold.bookingId);
+                    if(current.isEmpty() || !isPending(current.get())) return null;
+                    Booking booking = current.get();
+                    booking.setStatus("expired");
+                    bookingEvents.saved(bookingService.saveBooking(booking));
+                    return new RoomInventoryLedger.Stay(booking.getHotel(), booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked());
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not expire booking {}, retrying later", hold.orderId, e);
+                restore(new Hold(hold.orderId, hold.bookingId, hold.rooms, System.currentTimeMillis() + RETRY_MILLIS));
+                return;
+            }
+            if(stay == null || stay.hotel() == null) return;
+
+            inventoryLedger.release(stay.hotel().getHotelId(), stay.checkIn(), stay.checkOut(), stay.rooms());
+            expiredCount.incrementAndGet();
+            log.info("Expired unpaid booking {}", hold.orderId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void restore(Hold hold){
+        holds.put(hold.orderId, hold);
+        queue.add(hold);
+    }
+
+    private static boolean isPending(Booking booking){
+        return "pending".equalsIgnoreCase(booking.getStatus());
+    }
+
+    private static void onRollback(Runnable action){
+        onCommit(() -> {}, action);
+    }
+
+    // Outside a transaction the commit action runs straight away
+    private static void onCommit(Runnable commit, Runnable rollback){
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            commit.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization(){
+            @Override
+            public void afterCompletion(int status){
+                if(status == STATUS_COMMITTED) commit.run();
+                else rollback.run();
+            }
+        });
+    }
+
+    private ReentrantLock stripeFor(String orderId){
+        return stripes[(Objects.hashCode(orderId) * 0x9E3779B9 >>> 26) & (STRIPES - 1)];
+    }
+
+    private static final class Hold implements Delayed {
+        final String orderId;
+        final Long bookingId;
+        final long deadline;
+        volatile int rooms;
+
+        Hold(String orderId, Long bookingId, int rooms, long deadline){
+            this.orderId = orderId;
+            this.bookingId = bookingId;
+            this.rooms = rooms;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit){
+            return unit.convert(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other){
+            return Long.compare(deadline, ((Hold) other).deadline);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.hotelbooking.dto;
+
+// One line of a batch booking; the fields mirror the createBooking parameters
+public record BookingLineRequest(Long userId, Long hotelId, String checkIn, String checkOut,
+                                 int roomsBooked, String currency) {
+}
@@ -0,0 +1,15 @@
+package com.hotelbooking.dto;
+
+import com.hotelbooking.entity.Booking;
+
+// Outcome of one batch booking line: the saved booking, or the reason it was not booked
+public record BookingLineResult(int line, BookingView booking, String error) {
+
+    public static BookingLineResult booked(int line, Booking booking){
+        return new BookingLineResult(line, BookingView.of(booking), null);
+    }
+
+    public static BookingLineResult rejected(int line, String error){
+        return new BookingLineResult(line, null, error);
+    }
+}
@@ -0,0 +1,30 @@
+package com.hotelbooking.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// Stay pricing shared by the booking endpoints, in the hotel's USD prices. Kept free of
+// Spring and JPA so the calculation can be exercised on its own.
+public final class BookingPricing {
+
+    private BookingPricing(){
+    }
+
+    // A same-day stay is still charged as one night
+    public static long nights(LocalDate checkIn, LocalDate checkOut){
+        return Math.max(1, ChronoUnit.DAYS.between(checkIn, checkOut));
+    }
+
+    public static BigDecimal stayTotal(BigDecimal pricePerNight, long nights, int rooms){
+        return pricePerNight.multiply(BigDecimal.valueOf(nights * rooms));
+    }
+
+    // Takes a percentage off, rounded to cents; no offer leaves the amount as it was
+    public static BigDecimal discounted(BigDecimal amount, double percent){
+        if(percent <= 0) return amount;
+        BigDecimal remaining = BigDecimal.valueOf(100 - Math.min(percent, 100));
+        return amount.multiply(remaining).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,13 @@
+package com.hotelbooking.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Flat read projection of a booking with the hotel and user columns it needs,
+// fetched in one joined query instead of lazily loading each association
+public record BookingSummary(Long bookingId, String orderId,
+                             Long userId, String userName, String userEmail,
+                             Long hotelId, String hotelName,
+                             LocalDate checkIn, LocalDate checkOut, int roomsBooked,
+                             BigDecimal totalAmount, String currency, String status) {
+}
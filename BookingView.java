@@ -0,0 +1,31 @@
+package com.hotelbooking.dto;
+
+import com.hotelbooking.entity.Booking;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.User;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Booking as returned to clients: the booking columns, the hotel as clients have always
+// seen it, and just enough of the user to display it. Never carries the user's password
+// or the rest of the user entity.
+public record BookingView(Long bookingId, String orderId, LocalDate checkIn, LocalDate checkOut, int roomsBooked,
+                          BigDecimal totalAmount, String currency, String status, Hotel hotel, UserRef user) {
+
+    public record UserRef(Long userId, String name, String email) {
+    }
+
+    public static BookingView of(Booking b){
+        User user = b.getUser();
+        return new BookingView(b.getBookingId(), b.getOrderId(), b.getCheckIn(), b.getCheckOut(), b.getRoomsBooked(),
+            b.getTotalAmount(), b.getCurrency(), b.getStatus(), b.getHotel(),
+            user == null ? null : new UserRef(user.getUserId(), user.getName(), user.getEmail()));
+    }
+
+    // From the column projection, with the hotel taken from the catalog rather than the query
+    public static BookingView of(BookingSummary b, Hotel hotel){
+        return new BookingView(b.bookingId(), b.orderId(), b.checkIn(), b.checkOut(), b.roomsBooked(),
+            b.totalAmount(), b.currency(), b.status(), hotel,
+            b.userId() == null ? null : new UserRef(b.userId(), b.userName(), b.userEmail()));
+    }
+}
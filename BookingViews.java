@@ -0,0 +1,51 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.dto.BookingSummary;
+import com.hotelbooking.dto.BookingView;
+import com.hotelbooking.entity.Hotel;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.List;
+import java.util.Map;
+
+// Booking listings for clients. Only the booking and user columns the view needs are
+// selected, straight into a DTO, so no entity is loaded or tracked; the hotel comes from
+// the in-memory catalog, so clients still see it as they always have.
+@Service
+public class BookingViews {
+
+    private static final String SELECT =
+        "select new com.hotelbooking.dto.BookingSummary(b.bookingId, b.orderId, u.userId, u.name, u.email, "
+        + "h.hotelId, h.hotelName, b.checkIn, b.checkOut, b.roomsBooked, b.totalAmount, b.currency, b.status) "
+        + "from Booking b left join b.user u left join b.hotel h ";
+
+    private final HotelCatalogCache catalogCache;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public BookingViews(HotelCatalogCache catalogCache){
+        this.catalogCache = catalogCache;
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookingView> forUser(Long userId){
+        return views(entityManager.createQuery(SELECT + "where u.userId = :userId order by b.bookingId", BookingSummary.class)
+            .setParameter("userId", userId)
+            .getResultList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookingView> all(){
+        return views(entityManager.createQuery(SELECT + "order by b.bookingId", BookingSummary.class).getResultList());
+    }
+
+    private List<BookingView> views(List<BookingSummary> rows){
+        Map<Long, Hotel> hotels = catalogCache.snapshot().byId();
+        return rows.stream()
+            .map(row -> BookingView.of(row, row.hotelId() == null ? null : hotels.get(row.hotelId())))
+            .toList();
+    }
+}
@@ -0,0 +1,34 @@
+package com.hotelbooking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.atomic.AtomicReference;
+
+// The hotel catalog serialised once per snapshot version. getAllHotels writes these bytes
+// straight to the response instead of running Jackson over every hotel on every request.
+@Component
+public class CatalogJson {
+
+    public record Encoded(long version, String etag, byte[] json) {
+    }
+
+    private final HotelCatalogCache catalogCache;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Encoded> encoded = new AtomicReference<>();
+
+    public CatalogJson(HotelCatalogCache catalogCache, ObjectMapper objectMapper){
+        this.catalogCache = catalogCache;
+        this.objectMapper = objectMapper;
+    }
+
+    public Encoded current() throws JsonProcessingException {
+        HotelCatalogCache.Snapshot snapshot = catalogCache.snapshot();
+        Encoded cached = encoded.get();
+        if(cached != null && cached.version() >= snapshot.version()) return cached;
+        // Racing requests may both encode the same version; the newest one is kept
+        Encoded fresh = new Encoded(snapshot.version(), snapshot.etag(), objectMapper.writeValueAsBytes(snapshot.hotels()));
+        encoded.accumulateAndGet(fresh, (a, b) -> a == null || b.version() > a.version() ? b : a);
+        return fresh;
+    }
+}
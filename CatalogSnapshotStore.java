@@ -0,0 +1,210 @@
+package com.hotelbooking.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.Offer;
+import com.hotelbooking.repository.HotelRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Local snapshot of the hotel catalog and the per-hotel offer cache, so a restarted
+// instance serves HotelController from memory from its first request. The file is read
+// through a memory map before the web server starts; the catalog is then reconciled with
+// the database in the background. A snapshot is written periodically and on shutdown.
+//
+// Layout: magic, format version, written-at millis, then a hotels section (JSON array)
+// and an offers section (hotel ID and JSON array per hotel), then a CRC32 of both.
+// The search index is rebuilt from the loaded hotels rather than stored.
+@Service
+public class CatalogSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotStore.class);
+
+    private static final int MAGIC = 0x48424353;
+    private static final int FORMAT_VERSION = 1;
+    private static final int RECONCILE_ATTEMPTS = 3;
+    private static final TypeReference<List<Hotel>> HOTELS = new TypeReference<>(){};
+    private static final TypeReference<List<Offer>> OFFERS = new TypeReference<>(){};
+
+    private final HotelCatalogCache catalogCache;
+    private final HotelSearchIndex searchIndex;
+    private final OfferCache offerCache;
+    private final HotelRepository hotelRepository;
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final boolean enabled;
+
+    private volatile boolean loaded;
+
+    public CatalogSnapshotStore(HotelCatalogCache catalogCache, HotelSearchIndex searchIndex, OfferCache offerCache,
+                                HotelRepository hotelRepository, ObjectMapper objectMapper,
+                                @Value("${catalog.snapshot.path:data/catalog.snapshot}") String path,
+                                @Value("${catalog.snapshot.enabled:true}") boolean enabled){
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.offerCache = offerCache;
+        this.hotelRepository = hotelRepository;
+        this.objectMapper = objectMapper;
+        this.path = Paths.get(path);
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void load(){
+        if(!enabled || !Files.exists(path)) return;
+        long started = System.nanoTime();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION){
+                log.warn("Ignoring catalog snapshot {} with an unknown format", path);
+                return;
+            }
+            long writtenAt = buffer.getLong();
+            // The CRC is checked before any JSON is parsed, so a torn file costs one pass over the bytes
+            int bodyStart = buffer.position();
+            int bodyEnd = buffer.limit() - Long.BYTES;
+            if(bodyEnd < bodyStart || buffer.getLong(bodyEnd) != checksum(buffer, bodyStart, bodyEnd)){
+                log.warn("Ignoring catalog snapshot {} that fails its checksum", path);
+                return;
+            }
+            List<Hotel> hotels = objectMapper.readValue(section(buffer), HOTELS);
+            int hotelCount = buffer.getInt();
+            Map<Long, List<Offer>> offers = new HashMap<>(hotelCount * 2);
+            for(int i = 0; i < hotelCount; i++){
+                long hotelId = buffer.getLong();
+                offers.put(hotelId, List.copyOf(objectMapper.readValue(section(buffer), OFFERS)));
+            }
+            if(buffer.position() != bodyEnd){
+                log.warn("Ignoring catalog snapshot {} with trailing data", path);
+                return;
+            }
+
+            catalogCache.replaceAll(hotels);
+            searchIndex.rebuild(hotels);
+            offerCache.preload(offers);
+            loaded = true;
+            log.info("Loaded {} hotels from catalog snapshot written at {} in {} ms",
+                hotels.size(), writtenAt, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // A torn or corrupt snapshot only costs a cold start
+            log.warn("Could not load catalog snapshot {}", path, e);
+        }
+    }
+
+    // Brings a snapshot-loaded catalog back in line with the database without holding up startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile(){
+        if(!loaded) return;
+        Thread thread = new Thread(() -> {
+            try {
+                List<Hotel> hotels = null;
+                for(int attempt = 0; attempt < RECONCILE_ATTEMPTS && hotels == null; attempt++){
+                    long version = catalogCache.snapshot().version();
+                    List<Hotel> read = hotelRepository.findAll();
+                    // A hotel saved meanwhile may be missing from the read, so it's tried again
+                    if(catalogCache.replaceIfUnchanged(read, version)) hotels = read;
+                }
+                if(hotels == null){
+                    // Under steady hotel writes: read again while holding off the writers
+                    hotels = catalogCache.reload();
+                }
+                rebuildIndex();
+                offerCache.refresh();
+                log.info("Catalog snapshot reconciled with {} hotels from the database", hotels.size());
+            } catch (RuntimeException e) {
+                log.error("Catalog snapshot reconciliation failed", e);
+            }
+        }, "catalog-snapshot-reconcile");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Rebuilds from the current catalog until no hotel was saved while it ran, so a
+    // concurrent searchIndex.put can't be overwritten by an older list
+    private void rebuildIndex(){
+        while(true){
+            HotelCatalogCache.Snapshot catalog = catalogCache.snapshot();
+            searchIndex.rebuild(catalog.hotels());
+            if(catalogCache.snapshot().version() == catalog.version()) return;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.snapshot.write-interval-millis:300000}",
+               initialDelayString = "${catalog.snapshot.write-interval-millis:300000}")
+    @PreDestroy
+    public synchronized void write(){
+        // Nothing to save until the catalog has been loaded; never load it just for this
+        if(!enabled || !catalogCache.isLoaded()) return;
+        HotelCatalogCache.Snapshot catalog = catalogCache.snapshot();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            int bodyStart = out.size();
+            writeSection(out, objectMapper.writeValueAsBytes(catalog.hotels()));
+            Map<Long, List<Offer>> offers = offerCache.cachedByHotel();
+            out.writeInt(offers.size());
+            for(Map.Entry<Long, List<Offer>> entry : offers.entrySet()){
+                out.writeLong(entry.getKey());
+                writeSection(out, objectMapper.writeValueAsBytes(entry.getValue()));
+            }
+            out.flush();
+            byte[] body = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body, bodyStart, body.length - bodyStart);
+            out.writeLong(crc.getValue());
+            out.flush();
+
+            if(path.getParent() != null) Files.createDirectories(path.getParent());
+            Path tmp = Paths.get(path + ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write catalog snapshot {}", path, e);
+        }
+    }
+
+    private static void writeSection(DataOutputStream out, byte[] json) throws IOException {
+        out.writeInt(json.length);
+        out.write(json);
+    }
+
+    private static byte[] section(MappedByteBuffer buffer){
+        int length = buffer.getInt();
+        if(length < 0 || length > buffer.remaining()) throw new IllegalArgumentException("Bad section length " + length);
+        byte[] json = new byte[length];
+        buffer.get(json);
+        return json;
+    }
+
+    private static long checksum(MappedByteBuffer buffer, int from, int to){
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(from, to - from));
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,63 @@
+package com.hotelbooking.security;
+
+import com.hotelbooking.metrics.MetricsRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Throttles login and registration per client IP and per email, so credential stuffing
+// and sign-up bots are turned away before they reach the database.
+@Component
+public class ClientRateLimiter {
+
+    private static final int SLOTS = 16_384;
+
+    private final TokenBucketLimiter loginsByIp;
+    private final TokenBucketLimiter loginsByEmail;
+    private final TokenBucketLimiter registrationsByIp;
+    private final boolean trustForwardedFor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ClientRateLimiter(MetricsRegistry metricsRegistry,
+                             @Value("${ratelimit.login.ip.burst:20}") int loginIpBurst,
+                             @Value("${ratelimit.login.ip.per-minute:10}") int loginIpPerMinute,
+                             @Value("${ratelimit.login.email.burst:5}") int loginEmailBurst,
+                             @Value("${ratelimit.login.email.per-minute:5}") int loginEmailPerMinute,
+                             @Value("${ratelimit.register.ip.burst:5}") int registerIpBurst,
+                             @Value("${ratelimit.register.ip.per-minute:3}") int registerIpPerMinute,
+                             @Value("${ratelimit.trust-forwarded-for:false}") boolean trustForwardedFor){
+        this.loginsByIp = new TokenBucketLimiter(SLOTS, loginIpBurst, loginIpPerMinute);
+        this.loginsByEmail = new TokenBucketLimiter(SLOTS, loginEmailBurst, loginEmailPerMinute);
+        this.registrationsByIp = new TokenBucketLimiter(SLOTS, registerIpBurst, registerIpPerMinute);
+        this.trustForwardedFor = trustForwardedFor;
+        metricsRegistry.gauge("ratelimit_rejected", rejected::get);
+    }
+
+    public boolean allowLogin(HttpServletRequest request, String email){
+        return count(loginsByIp.tryAcquire(clientIp(request))
+            && (email == null || loginsByEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT))));
+    }
+
+    public boolean allowRegistration(HttpServletRequest request){
+        return count(registrationsByIp.tryAcquire(clientIp(request)));
+    }
+
+    private boolean count(boolean allowed){
+        if(!allowed) rejected.incrementAndGet();
+        return allowed;
+    }
+
+    // X-Forwarded-For is only honoured behind a proxy that sets it, otherwise anyone could pick their own key
+    private String clientIp(HttpServletRequest request){
+        if(trustForwardedFor){
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if(forwarded != null && !forwarded.isBlank()){
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
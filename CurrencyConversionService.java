@@ -0,0 +1,86 @@
+package com.hotelbooking.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Holds the current ExchangeRates snapshot and swaps in a new one when the rate file
+// changes. The file is a properties file of CODE=unitsPerUsd or CODE=unitsPerUsd,scale
+// lines, plus an optional version=N line; it stands in for a rate provider feed.
+@Service
+public class CurrencyConversionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CurrencyConversionService.class);
+
+    private final Path ratesFile;
+    private final AtomicReference<ExchangeRates> current = new AtomicReference<>(defaultRates());
+    private volatile long loadedModified = -1;
+
+    public CurrencyConversionService(@Value("${currency.rates.path:config/exchange-rates.properties}") String ratesFile){
+        this.ratesFile = Paths.get(ratesFile);
+        refresh();
+    }
+
+    // Callers take one snapshot per request so every amount uses the same rate version
+    public ExchangeRates current(){
+        return current.get();
+    }
+
+    @Scheduled(fixedDelayString = "${currency.rates.refresh-millis:60000}")
+    public void refresh(){
+        try {
+            if(!Files.exists(ratesFile)) return;
+            long modified = Files.getLastModifiedTime(ratesFile).toMillis();
+            if(modified == loadedModified) return;
+
+            ExchangeRates rates = load(modified);
+            current.set(rates);
+            loadedModified = modified;
+            log.info("Loaded exchange rates version {} for {}", rates.version(), rates.currencies());
+        } catch (IOException | RuntimeException e) {
+            // Keep serving the previous snapshot
+            log.error("Failed to load exchange rates from {}", ratesFile, e);
+        }
+    }
+
+    private ExchangeRates load(long modified) throws IOException {
+        Properties properties = new Properties();
+        try(Reader reader = Files.newBufferedReader(ratesFile, StandardCharsets.UTF_8)){
+            properties.load(reader);
+        }
+        long version = Long.parseLong(properties.getProperty("version", Long.toString(modified)));
+        Map<String, BigDecimal> perUsd = new LinkedHashMap<>();
+        Map<String, Integer> scales = new LinkedHashMap<>();
+        perUsd.put("USD", BigDecimal.ONE);
+        for(String code : properties.stringPropertyNames()){
+            if("version".equals(code)) continue;
+            String[] parts = properties.getProperty(code).split(",");
+            BigDecimal rate = new BigDecimal(parts[0].trim());
+            if(rate.signum() <= 0) throw new IllegalArgumentException("Rate for " + code + " must be positive");
+            perUsd.put(code.trim().toUpperCase(), rate);
+            if(parts.length > 1) scales.put(code.trim().toUpperCase(), Integer.parseInt(parts[1].trim()));
+        }
+        return new ExchangeRates(version, perUsd, scales);
+    }
+
+    // Built-in table used until a rate file is present: 1 USD = 320 LKR
+    private static ExchangeRates defaultRates(){
+        Map<String, BigDecimal> perUsd = new LinkedHashMap<>();
+        perUsd.put("USD", BigDecimal.ONE);
+        perUsd.put("LKR", BigDecimal.valueOf(320));
+        return new ExchangeRates(0, perUsd, Map.of());
+    }
+}
@@ -0,0 +1,60 @@
+package com.hotelbooking.controller;
+
+import com.hotelbooking.security.RequiresRole;
+import com.hotelbooking.service.BookingAggregates;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/dashboard")
+@CrossOrigin(origins = "*")
+public class DashboardController {
+
+    // Longest range one request may ask for
+    private static final int MAX_DAYS = 3 * 366;
+
+    private final BookingAggregates bookingAggregates;
+
+    public DashboardController(BookingAggregates bookingAggregates){
+        this.bookingAggregates = bookingAggregates;
+    }
+
+    @GetMapping("/hotels/{hotelId}")
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<List<BookingAggregates.DayTotals>> hotelDays(@RequestParam Long adminId, @PathVariable Long hotelId,
+                                                                        @RequestParam String from, @RequestParam String to){
+        LocalDate[] range = range(from, to);
+        if(range == null) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(bookingAggregates.hotelRange(hotelId, range[0], range[1]));
+    }
+
+    @GetMapping("/totals")
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<List<BookingAggregates.DayTotals>> totalDays(@RequestParam Long adminId,
+                                                                        @RequestParam String from, @RequestParam String to){
+        LocalDate[] range = range(from, to);
+        if(range == null) return ResponseEntity.badRequest().build();
+        return ResponseEntity.ok(bookingAggregates.totalRange(range[0], range[1]));
+    }
+
+    @PostMapping("/rebuild")
+    @RequiresRole("ADMIN")
+    public Map<String, Integer> rebuild(@RequestParam Long adminId){
+        return Map.of("driftedHotels", bookingAggregates.rebuild());
+    }
+
+    private static LocalDate[] range(String from, String to){
+        try {
+            LocalDate start = LocalDate.parse(from);
+            LocalDate end = LocalDate.parse(to);
+            if(end.isBefore(start) || end.toEpochDay() - start.toEpochDay() > MAX_DAYS) return null;
+            return new LocalDate[]{start, end};
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
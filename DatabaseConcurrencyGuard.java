@@ -0,0 +1,106 @@
+package com.hotelbooking.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Wraps the application DataSource so no more than app.db.max-concurrency connections
+// (the pool size by default) are checked out at once. With virtual threads there can be
+// far more concurrent handlers than connections; the rest wait on the semaphore, which
+// parks a virtual thread cheaply, and give up after app.db.acquire-timeout-millis.
+public class DatabaseConcurrencyGuard implements BeanPostProcessor, EnvironmentAware {
+
+    private int permits = 10;
+    private long acquireTimeoutMillis = 30_000;
+
+    @Override
+    public void setEnvironment(Environment environment){
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        this.permits = environment.getProperty("app.db.max-concurrency", Integer.class, poolSize);
+        this.acquireTimeoutMillis = environment.getProperty("app.db.acquire-timeout-millis", Long.class, 30_000L);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName){
+        if(bean instanceof DataSource dataSource && !(bean instanceof GuardedDataSource)){
+            return new GuardedDataSource(dataSource, new Semaphore(permits, true), acquireTimeoutMillis);
+        }
+        return bean;
+    }
+
+    public static final class GuardedDataSource extends DelegatingDataSource {
+
+        private final Semaphore permits;
+        private final long acquireTimeoutMillis;
+
+        GuardedDataSource(DataSource target, Semaphore permits, long acquireTimeoutMillis){
+            super(target);
+            this.permits = permits;
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+        }
+
+        public int availablePermits(){
+            return permits.availablePermits();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            try {
+                return guarded(super.getConnection());
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            try {
+                return guarded(super.getConnection(username, password));
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                if(!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)){
+                    throw new SQLTransientConnectionException("Timed out waiting for a database permit");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted waiting for a database permit", e);
+            }
+        }
+
+        // The permit goes back exactly once, when the caller closes the connection
+        private Connection guarded(Connection connection){
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if("close".equals(method.getName()) && released.compareAndSet(false, true)){
+                            permits.release();
+                        }
+                    }
+                });
+        }
+    }
+}
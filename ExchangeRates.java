@@ -0,0 +1,59 @@
+package com.hotelbooking.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Immutable snapshot of a rate table. Cross rates between every pair of currencies
+// are computed once when the snapshot is built, so a conversion is an index lookup,
+// one multiply and a rescale to the target currency's minor units.
+public final class ExchangeRates {
+
+    private final long version;
+    private final Map<String, Integer> indexes;
+    private final BigDecimal[][] crossRates;
+    private final int[] scales;
+
+    // perUsd holds units of each currency per 1 USD; scales holds their decimal places
+    public ExchangeRates(long version, Map<String, BigDecimal> perUsd, Map<String, Integer> scales){
+        this.version = version;
+        this.indexes = new HashMap<>();
+        String[] codes = perUsd.keySet().toArray(new String[0]);
+        this.crossRates = new BigDecimal[codes.length][codes.length];
+        this.scales = new int[codes.length];
+        for(int i = 0; i < codes.length; i++){
+            indexes.put(codes[i], i);
+            this.scales[i] = scales.getOrDefault(codes[i], 2);
+        }
+        for(int from = 0; from < codes.length; from++){
+            for(int to = 0; to < codes.length; to++){
+                crossRates[from][to] = from == to ? BigDecimal.ONE
+                    : perUsd.get(codes[to]).divide(perUsd.get(codes[from]), MathContext.DECIMAL64);
+            }
+        }
+    }
+
+    public long version(){
+        return version;
+    }
+
+    public boolean supports(String currency){
+        return indexes.containsKey(currency);
+    }
+
+    public Set<String> currencies(){
+        return indexes.keySet();
+    }
+
+    public BigDecimal convert(BigDecimal amount, String fromCurrency, String toCurrency){
+        Integer from = indexes.get(fromCurrency);
+        Integer to = indexes.get(toCurrency);
+        if(from == null || to == null){
+            throw new IllegalArgumentException("Unsupported currency conversion " + fromCurrency + " -> " + toCurrency);
+        }
+        return amount.multiply(crossRates[from][to]).setScale(scales[to], RoundingMode.HALF_UP);
+    }
+}
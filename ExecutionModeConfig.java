@@ -0,0 +1,40 @@
+package com.hotelbooking.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// app.execution-mode=virtual runs every request handler on its own virtual thread
+// instead of Tomcat's platform thread pool. Handlers stay blocking; a thread parked on
+// JDBC no longer holds a pool slot. Database access is capped by GuardedDataSource.
+// Virtual threads need Java 21; the executor is looked up reflectively so the app still
+// builds and runs on Java 17 in the default platform mode.
+@Configuration
+@ConditionalOnProperty(name = "app.execution-mode", havingValue = "virtual")
+public class ExecutionModeConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer(){
+        ExecutorService executor = virtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean
+    public static DatabaseConcurrencyGuard databaseConcurrencyGuard(){
+        return new DatabaseConcurrencyGuard();
+    }
+
+    private static ExecutorService virtualThreadPerTaskExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("app.execution-mode=virtual requires Java 21 or later, running on "
+                + Runtime.version().feature(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+}
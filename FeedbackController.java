@@ -1,22 +1,37 @@
 package com.hotelbooking.controller;
 
 import com.hotelbooking.entity.Feedback;
-import com.hotelbooking.repository.FeedbackRepository;
+import com.hotelbooking.service.FeedbackIngestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/feedback")
 @CrossOrigin(origins = "*")
 public class FeedbackController {
 
-    private final FeedbackRepository feedbackRepository;
+    private static final Logger log = LoggerFactory.getLogger(FeedbackController.class);
 
-    public FeedbackController(FeedbackRepository feedbackRepository){
-        this.feedbackRepository = feedbackRepository;
+    private final FeedbackIngestion feedbackIngestion;
+
+    public FeedbackController(FeedbackIngestion feedbackIngestion){
+        this.feedbackIngestion = feedbackIngestion;
     }
 
+    // Accepted once it is spooled; it reaches the database with the next flush
     @PostMapping
-    public Feedback submitFeedback(@RequestBody Feedback feedback){
-        return feedbackRepository.save(feedback);
+    public ResponseEntity<Void> submitFeedback(@RequestBody Feedback feedback){
+        try {
+            if(!feedbackIngestion.submit(feedback)){
+                return ResponseEntity.status(503).header("Retry-After", "1").build();
+            }
+            return ResponseEntity.accepted().build();
+        } catch (IOException e) {
+            log.error("Could not spool feedback", e);
+            return ResponseEntity.status(503).build();
+        }
     }
 }
@@ -0,0 +1,312 @@
+package com.hotelbooking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooking.entity.Feedback;
+import com.hotelbooking.metrics.MetricsRegistry;
+import com.hotelbooking.repository.FeedbackRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Write-behind path for guest feedback. Accepted feedback is appended to a spool segment
+// and queued; a single worker writes it with saveAll once a batch fills up or the flush
+// interval passes. A segment file is deleted when everything in it has been written, and
+// whatever is still spooled at startup is handed to the worker ahead of new feedback. A
+// batch the database refuses is retried row by row; rows it rejects outright go to a
+// dead-letter file so one bad entry cannot hold up the rest.
+@Service
+public class FeedbackIngestion {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedbackIngestion.class);
+
+    private static final String SEGMENT_PREFIX = "feedback-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String DEAD_LETTER_FILE = "dead-letter.jsonl";
+    private static final long RETRY_MILLIS = 5_000;
+
+    private record Pending(long segment, Feedback feedback) {
+    }
+
+    private final FeedbackRepository feedbackRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ArrayBlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int segmentEntries;
+    private final Path spoolDir;
+
+    private final Object appendLock = new Object();
+    // Entries not yet written, per segment; the current segment is the one being appended to
+    private final Map<Long, Integer> outstanding = new HashMap<>();
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    // Entries spooled before the last shutdown; only the worker touches it once started
+    private final ArrayDeque<Pending> recovered = new ArrayDeque<>();
+
+    private FileChannel segmentChannel;
+    private long segment;
+    private int segmentWritten;
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public FeedbackIngestion(FeedbackRepository feedbackRepository, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager, MetricsRegistry metricsRegistry,
+                             @Value("${feedback.buffer.capacity:10000}") int capacity,
+                             @Value("${feedback.flush.batch-size:200}") int batchSize,
+                             @Value("${feedback.flush.interval-millis:1000}") long flushIntervalMillis,
+                             @Value("${feedback.spool.segment-entries:1000}") int segmentEntries,
+                             @Value("${feedback.spool.dir:data/feedback-spool}") String spoolDir){
+        this.feedbackRepository = feedbackRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.segmentEntries = segmentEntries;
+        this.spoolDir = Paths.get(spoolDir);
+
+        metricsRegistry.gauge("feedback_buffer_depth", queue::size);
+        metricsRegistry.gauge("feedback_ingested", ingested::get);
+        metricsRegistry.gauge("feedback_flushed", flushed::get);
+        metricsRegistry.gauge("feedback_flush_batches", batches::get);
+        metricsRegistry.gauge("feedback_rejected", rejected::get);
+        metricsRegistry.gauge("feedback_dead_lettered", deadLettered::get);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(spoolDir);
+        List<Path> segments = spooledSegments();
+        for(Path path : segments){
+            recover(path);
+        }
+        segment = segments.isEmpty() ? 1 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        openSegment();
+
+        worker = new Thread(this::drain, "feedback-flush-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        synchronized(appendLock){
+            segmentChannel.close();
+        }
+    }
+
+    // Spools and queues the feedback; false means the buffer is full and the caller should back off
+    public boolean submit(Feedback feedback) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(feedback) + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized(appendLock){
+            if(queue.remainingCapacity() == 0){
+                rejected.incrementAndGet();
+                return false;
+            }
+            if(segmentWritten == segmentEntries){
+                segmentChannel.close();
+                if(outstanding.get(segment) == 0){
+                    outstanding.remove(segment);
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+                segment++;
+                openSegment();
+            }
+            segmentChannel.write(ByteBuffer.wrap(line));
+            segmentChannel.force(false);
+            segmentWritten++;
+            outstanding.merge(segment, 1, Integer::sum);
+            // Only the worker removes from the queue, so the capacity checked above is still there
+            queue.add(new Pending(segment, feedback));
+        }
+        ingested.incrementAndGet();
+        return true;
+    }
+
+    private void drain(){
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while(running){
+            try {
+                while(batch.size() < batchSize && !recovered.isEmpty()){
+                    batch.add(recovered.poll());
+                }
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while(batch.size() < batchSize){
+                    long wait = deadline - System.currentTimeMillis();
+                    if(wait <= 0) break;
+                    Pending next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if(next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if(batch.isEmpty()) continue;
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // What is left of the batch is kept and retried; it is still in the spool either way
+                log.error("Feedback flush of {} entries failed, retrying", batch.size(), e);
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Written rows are removed from the batch, so a retry after an exception only redoes the rest
+    private void flush(List<Pending> batch) throws IOException {
+        List<Feedback> rows = new ArrayList<>(batch.size());
+        for(Pending pending : batch){
+            rows.add(pending.feedback());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> feedbackRepository.saveAll(rows));
+            batches.incrementAndGet();
+            completed(batch);
+            batch.clear();
+            return;
+        } catch (RuntimeException e) {
+            if(batch.size() == 1 && !rejectedByDatabase(e)) throw e;
+            log.warn("Feedback batch of {} entries failed, writing row by row", batch.size(), e);
+        }
+        for(Iterator<Pending> it = batch.iterator(); it.hasNext(); ){
+            Pending pending = it.next();
+            try {
+                transactionTemplate.executeWithoutResult(status -> feedbackRepository.save(pending.feedback()));
+            } catch (RuntimeException e) {
+                if(!rejectedByDatabase(e)) throw e;
+                deadLetter(pending.feedback(), e);
+            }
+            completed(List.of(pending));
+            it.remove();
+        }
+    }
+
+    private void completed(List<Pending> written) throws IOException {
+        flushed.addAndGet(written.size());
+        synchronized(appendLock){
+            for(Pending pending : written){
+                outstanding.merge(pending.segment(), -1, Integer::sum);
+            }
+            // Closed segments with nothing left to write are done with
+            for(Long done : new ArrayList<>(outstanding.keySet())){
+                if(outstanding.get(done) == 0 && done != segment){
+                    outstanding.remove(done);
+                    Files.deleteIfExists(segmentPath(done));
+                }
+            }
+        }
+    }
+
+    // The row itself is at fault and will never be accepted, as opposed to the database being unavailable
+    private static boolean rejectedByDatabase(Throwable e){
+        for(Throwable cause = e; cause != null; cause = cause.getCause()){
+            if(cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException) return true;
+        }
+        return false;
+    }
+
+    private void deadLetter(Feedback feedback, Exception e) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(feedback) + "\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(spoolDir.resolve(DEAD_LETTER_FILE), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+            StandardOpenOption.SYNC);
+        deadLettered.incrementAndGet();
+        log.error("Moved feedback the database rejected to {}", DEAD_LETTER_FILE, e);
+    }
+
+    // Hands a leftover segment to the worker; the file goes once all of it has been written
+    private void recover(Path path){
+        long number = segmentNumber(path);
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // Left in place for a later start; new segments are numbered after it
+            log.error("Could not read spooled feedback in {}", path, e);
+            return;
+        }
+        int count = 0;
+        for(String line : lines){
+            if(line.isBlank()) continue;
+            try {
+                recovered.add(new Pending(number, objectMapper.readValue(line, Feedback.class)));
+                count++;
+            } catch (IOException e) {
+                // A torn final line from a crash mid-write
+                log.warn("Skipping unreadable spooled feedback in {}", path);
+            }
+        }
+        if(count == 0){
+            try {
+                Files.delete(path);
+            } catch (IOException e) {
+                log.warn("Could not delete empty feedback segment {}", path, e);
+            }
+            return;
+        }
+        outstanding.put(number, count);
+        log.info("Recovered {} spooled feedback entries from {}", count, path);
+    }
+
+    private void openSegment() throws IOException {
+        segmentChannel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        segmentWritten = 0;
+        outstanding.put(segment, 0);
+    }
+
+    private List<Path> spooledSegments() throws IOException {
+        try(Stream<Path> files = Files.list(spoolDir)){
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                    && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                .toList();
+        }
+    }
+
+    private Path segmentPath(long number){
+        return spoolDir.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumber(Path path){
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
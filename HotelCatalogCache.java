@@ -0,0 +1,127 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.repository.HotelRepository;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Read-through cache of the hotel catalog. Readers get an immutable, versioned snapshot;
+// addHotel/updateHotel/deleteHotel publish a new snapshot copied from the old one, so
+// the catalog is read from the database once and then only on explicit reload.
+//
+// Hotel.roomsAvailable is the hotel's nightly capacity and only changes through
+// updateHotel. Per-night availability lives in RoomInventoryLedger and is never cached here.
+@Component
+public class HotelCatalogCache {
+
+    public static final class Snapshot {
+        private final long version;
+        private final String etag;
+        private final List<Hotel> hotels;
+        private final Map<Long, Hotel> byId;
+
+        Snapshot(long version, String etag, Map<Long, Hotel> byId){
+            this.version = version;
+            this.etag = etag;
+            this.byId = Collections.unmodifiableMap(byId);
+            this.hotels = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+        }
+
+        public long version(){
+            return version;
+        }
+
+        public String etag(){
+            return etag;
+        }
+
+        public List<Hotel> hotels(){
+            return hotels;
+        }
+
+        public Map<Long, Hotel> byId(){
+            return byId;
+        }
+    }
+
+    private final HotelRepository hotelRepository;
+    // Distinguishes ETags issued by different runs of the application
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private volatile Snapshot snapshot;
+    private long version;
+
+    public HotelCatalogCache(HotelRepository hotelRepository){
+        this.hotelRepository = hotelRepository;
+    }
+
+    public Snapshot snapshot(){
+        Snapshot current = snapshot;
+        return current != null ? current : load();
+    }
+
+    public boolean isLoaded(){
+        return snapshot != null;
+    }
+
+    public List<Hotel> hotels(){
+        return snapshot().hotels();
+    }
+
+    public Optional<Hotel> findById(Long hotelId){
+        return Optional.ofNullable(snapshot().byId().get(hotelId));
+    }
+
+    public synchronized void put(Hotel hotel){
+        Map<Long, Hotel> byId = new HashMap<>(snapshot().byId());
+        byId.put(hotel.getHotelId(), hotel);
+        publish(byId);
+    }
+
+    public synchronized void remove(Long hotelId){
+        Map<Long, Hotel> byId = new HashMap<>(snapshot().byId());
+        if(byId.remove(hotelId) != null) publish(byId);
+    }
+
+    public synchronized void replaceAll(Collection<Hotel> hotels){
+        Map<Long, Hotel> byId = new HashMap<>();
+        for(Hotel hotel : hotels){
+            byId.put(hotel.getHotelId(), hotel);
+        }
+        publish(byId);
+    }
+
+    // Replaces the catalog with a fresh read, unless it changed since expectedVersion was
+    // observed: then the read may miss that change and is dropped
+    public synchronized boolean replaceIfUnchanged(Collection<Hotel> hotels, long expectedVersion){
+        if(snapshot == null || snapshot.version() != expectedVersion) return false;
+        replaceAll(hotels);
+        return true;
+    }
+
+    // Reads the database while holding the cache lock, so no put or remove can land
+    // between the read and the replace. Writers wait for the read; readers don't.
+    public synchronized List<Hotel> reload(){
+        List<Hotel> hotels = hotelRepository.findAll();
+        replaceAll(hotels);
+        return hotels;
+    }
+
+    // Single-flight: concurrent cold readers wait for one findAll
+    private synchronized Snapshot load(){
+        if(snapshot == null){
+            replaceAll(hotelRepository.findAll());
+        }
+        return snapshot;
+    }
+
+    private void publish(Map<Long, Hotel> byId){
+        version++;
+        snapshot = new Snapshot(version, "\"" + epoch + "-" + version + "\"", byId);
+    }
+}
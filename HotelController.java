@@ -1,12 +1,29 @@
 package com.hotelbooking.controller;
 
+import com.hotelbooking.dto.AvailabilityResult;
 import com.hotelbooking.entity.Hotel;
 import com.hotelbooking.repository.HotelRepository;
+import com.hotelbooking.service.AvailabilitySearch;
+import com.hotelbooking.service.CatalogJson;
+import com.hotelbooking.service.CurrencyConversionService;
+import com.hotelbooking.service.ExchangeRates;
+import com.hotelbooking.service.HotelCatalogCache;
+import com.hotelbooking.service.HotelSearchIndex;
+import com.hotelbooking.service.RoomInventoryLedger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.validation.BindingResult;
 import jakarta.validation.Valid;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -15,19 +32,83 @@ import java.util.stream.Collectors;
 public class HotelController {
 
     private final HotelRepository hotelRepository;
+    private final HotelSearchIndex searchIndex;
+    private final HotelCatalogCache catalogCache;
+    private final AvailabilitySearch availabilitySearch;
+    private final CurrencyConversionService currencyConversionService;
+    private final CatalogJson catalogJson;
+    private final RoomInventoryLedger inventoryLedger;
 
-    public HotelController(HotelRepository hotelRepository){
+    public HotelController(HotelRepository hotelRepository, HotelSearchIndex searchIndex, HotelCatalogCache catalogCache,
+                           AvailabilitySearch availabilitySearch, CurrencyConversionService currencyConversionService,
+                           CatalogJson catalogJson, RoomInventoryLedger inventoryLedger){
         this.hotelRepository = hotelRepository;
+        this.searchIndex = searchIndex;
+        this.catalogCache = catalogCache;
+        this.availabilitySearch = availabilitySearch;
+        this.currencyConversionService = currencyConversionService;
+        this.catalogJson = catalogJson;
+        this.inventoryLedger = inventoryLedger;
     }
 
     @GetMapping
-    public List<Hotel> getAllHotels(){
-        return hotelRepository.findAll();
+    public ResponseEntity<byte[]> getAllHotels(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch)
+            throws JsonProcessingException {
+        CatalogJson.Encoded catalog = catalogJson.current();
+        if(catalog.etag().equals(ifNoneMatch)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(catalog.etag()).contentType(MediaType.APPLICATION_JSON).body(catalog.json());
     }
 
     @GetMapping("/search")
-    public List<Hotel> searchByDistrict(@RequestParam String district){
-        return hotelRepository.findByDistrictContainingIgnoreCase(district);
+    public ResponseEntity<List<Hotel>> searchByDistrict(@RequestParam String district,
+                                                        @RequestParam(required = false) String name,
+                                                        @RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(required = false) Integer size){
+        if(!searchIndex.isReady()){
+            return ResponseEntity.ok(hotelRepository.findByDistrictContainingIgnoreCase(district));
+        }
+        Map<HotelSearchIndex.Field, String> criteria = new EnumMap<>(HotelSearchIndex.Field.class);
+        criteria.put(HotelSearchIndex.Field.DISTRICT, district);
+        criteria.put(HotelSearchIndex.Field.NAME, name);
+        return page(searchIndex.search(criteria), page, size);
+    }
+
+    @GetMapping("/search/text")
+    public ResponseEntity<List<Hotel>> searchText(@RequestParam String q,
+                                                  @RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "20") int size){
+        if(!searchIndex.isReady()){
+            return ResponseEntity.ok(hotelRepository.findByDistrictContainingIgnoreCase(q));
+        }
+        return page(searchIndex.searchAnyField(q), page, size);
+    }
+
+    // Hotels that can take the whole stay, cheapest first, priced in the requested currency
+    @GetMapping("/availability")
+    public ResponseEntity<List<AvailabilityResult>> searchAvailability(@RequestParam String district,
+                                                                       @RequestParam String checkIn,
+                                                                       @RequestParam String checkOut,
+                                                                       @RequestParam(defaultValue = "1") int rooms,
+                                                                       @RequestParam(required = false) BigDecimal maxPrice,
+                                                                       @RequestParam(defaultValue = "USD") String currency,
+                                                                       @RequestParam(defaultValue = "20") int limit){
+        LocalDate inDate;
+        LocalDate outDate;
+        try {
+            inDate = LocalDate.parse(checkIn);
+            outDate = LocalDate.parse(checkOut);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ExchangeRates rates = currencyConversionService.current();
+        if(district.isBlank() || rooms <= 0 || outDate.isBefore(inDate) || inDate.isBefore(LocalDate.now())
+                || !rates.supports(currency)){
+            return ResponseEntity.badRequest().build();
+        }
+        List<AvailabilityResult> results = availabilitySearch.search(district, inDate, outDate, rooms, maxPrice, currency, rates, limit);
+        return ResponseEntity.ok().header("X-Rate-Version", Long.toString(rates.version())).body(results);
     }
 
     @PostMapping
@@ -38,6 +119,8 @@ public class HotelController {
         }
         try {
             Hotel savedHotel = hotelRepository.save(hotel);
+            catalogCache.put(savedHotel);
+            searchIndex.put(savedHotel);
             return ResponseEntity.ok(savedHotel);
         } catch(Exception e) {
             return ResponseEntity.badRequest().body("Failed to save hotel");
@@ -47,11 +130,31 @@ public class HotelController {
     @PutMapping("/{id}")
     public Hotel updateHotel(@PathVariable Long id, @RequestBody Hotel hotel){
         hotel.setHotelId(id);
-        return hotelRepository.save(hotel);
+        Hotel savedHotel = hotelRepository.save(hotel);
+        catalogCache.put(savedHotel);
+        searchIndex.put(savedHotel);
+        return savedHotel;
     }
 
     @DeleteMapping("/{id}")
     public void deleteHotel(@PathVariable Long id){
         hotelRepository.deleteById(id);
+        catalogCache.remove(id);
+        searchIndex.remove(id);
+        inventoryLedger.forgetHotel(id);
+    }
+
+    // Only the hotels on the requested page are loaded, in index rank order
+    private ResponseEntity<List<Hotel>> page(List<Long> rankedIds, int page, Integer size){
+        int pageSize = size == null ? Math.max(rankedIds.size(), 1) : Math.max(size, 1);
+        int from = (int) Math.min((long) Math.max(page, 0) * pageSize, rankedIds.size());
+        List<Long> pageIds = rankedIds.subList(from, Math.min(from + pageSize, rankedIds.size()));
+
+        Map<Long, Hotel> byId = hotelRepository.findAllById(pageIds).stream()
+            .collect(Collectors.toMap(Hotel::getHotelId, Function.identity()));
+        List<Hotel> hotels = pageIds.stream().map(byId::get).filter(h -> h != null).collect(Collectors.toList());
+        return ResponseEntity.ok()
+            .header("X-Total-Count", String.valueOf(rankedIds.size()))
+            .body(hotels);
     }
 }
@@ -0,0 +1,224 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Hotel;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process search index over the hotel catalog. Every 1-, 2- and 3-character
+// substring of each indexed field maps to the hotels containing it, so substring
+// and prefix queries are answered from postings instead of a LIKE '%x%' scan.
+@Component
+public class HotelSearchIndex {
+
+    public enum Field { DISTRICT, NAME }
+
+    private static final int GRAM = 3;
+
+    private final HotelCatalogCache catalogCache;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private volatile boolean ready;
+
+    public HotelSearchIndex(HotelCatalogCache catalogCache){
+        this.catalogCache = catalogCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build(){
+        rebuild(catalogCache.hotels());
+    }
+
+    public void rebuild(Collection<Hotel> hotels){
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            for(Hotel hotel : hotels){
+                addLocked(hotel);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Callers fall back to the repository until the first build has finished
+    public boolean isReady(){
+        return ready;
+    }
+
+    public void put(Hotel hotel){
+        lock.writeLock().lock();
+        try {
+            removeLocked(hotel.getHotelId());
+            addLocked(hotel);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long hotelId){
+        lock.writeLock().lock();
+        try {
+            removeLocked(hotelId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ranked hotel IDs where every non-blank criterion matches its field; with no
+    // criteria at all every hotel matches, as the unfiltered listing did
+    public List<Long> search(Map<Field, String> criteria){
+        Map<Field, String> terms = new HashMap<>();
+        criteria.forEach((field, value) -> {
+            if(value != null && !value.isBlank()) terms.put(field, normalize(value));
+        });
+
+        lock.readLock().lock();
+        try {
+            List<Entry> matches = new ArrayList<>();
+            if(terms.isEmpty()){
+                matches.addAll(entries.values());
+            } else {
+                Set<Long> candidates = null;
+                for(Map.Entry<Field, String> term : terms.entrySet()){
+                    candidates = intersect(candidates, candidatesFor(term.getKey(), term.getValue()));
+                    if(candidates.isEmpty()) return List.of();
+                }
+                for(Long id : candidates){
+                    Entry entry = entries.get(id);
+                    if(entry != null && entry.matches(terms)) matches.add(entry);
+                }
+            }
+            matches.sort(Comparator.comparingInt((Entry e) -> e.rank(terms))
+                .thenComparing(e -> e.name)
+                .thenComparing(e -> e.hotelId));
+
+            List<Long> ids = new ArrayList<>(matches.size());
+            for(Entry entry : matches){
+                ids.add(entry.hotelId);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ranked hotel IDs where the text appears in either the district or the name
+    public List<Long> searchAnyField(String text){
+        List<Long> ids = new ArrayList<>(search(Map.of(Field.DISTRICT, text)));
+        Set<Long> seen = new HashSet<>(ids);
+        for(Long id : search(Map.of(Field.NAME, text))){
+            if(seen.add(id)) ids.add(id);
+        }
+        return ids;
+    }
+
+    private Set<Long> candidatesFor(Field field, String term){
+        if(term.length() <= GRAM){
+            return postings.getOrDefault(key(field, term), Set.of());
+        }
+        // Every trigram of the term must occur in the field; the final check is done on the entry
+        Set<Long> result = null;
+        for(int i = 0; i + GRAM <= term.length(); i++){
+            result = intersect(result, postings.getOrDefault(key(field, term.substring(i, i + GRAM)), Set.of()));
+            if(result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    private static Set<Long> intersect(Set<Long> current, Set<Long> next){
+        if(current == null) return new HashSet<>(next);
+        current.retainAll(next);
+        return current;
+    }
+
+    private void addLocked(Hotel hotel){
+        Entry entry = new Entry(hotel.getHotelId(), normalize(hotel.getDistrict()), normalize(hotel.getHotelName()));
+        entries.put(entry.hotelId, entry);
+        for(String gram : grams(entry)){
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(entry.hotelId);
+        }
+    }
+
+    private void removeLocked(Long hotelId){
+        Entry entry = entries.remove(hotelId);
+        if(entry == null) return;
+        for(String gram : grams(entry)){
+            Set<Long> ids = postings.get(gram);
+            if(ids != null && ids.remove(hotelId) && ids.isEmpty()) postings.remove(gram);
+        }
+    }
+
+    private static Set<String> grams(Entry entry){
+        Set<String> grams = new HashSet<>();
+        addGrams(grams, Field.DISTRICT, entry.district);
+        addGrams(grams, Field.NAME, entry.name);
+        return grams;
+    }
+
+    private static void addGrams(Set<String> grams, Field field, String value){
+        for(int i = 0; i < value.length(); i++){
+            for(int len = 1; len <= GRAM && i + len <= value.length(); len++){
+                grams.add(key(field, value.substring(i, i + len)));
+            }
+        }
+    }
+
+    private static String key(Field field, String gram){
+        return field.ordinal() + gram;
+    }
+
+    private static String normalize(String value){
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        final Long hotelId;
+        final String district;
+        final String name;
+
+        Entry(Long hotelId, String district, String name){
+            this.hotelId = hotelId;
+            this.district = district;
+            this.name = name;
+        }
+
+        String value(Field field){
+            return field == Field.DISTRICT ? district : name;
+        }
+
+        boolean matches(Map<Field, String> terms){
+            for(Map.Entry<Field, String> term : terms.entrySet()){
+                if(!value(term.getKey()).contains(term.getValue())) return false;
+            }
+            return true;
+        }
+
+        // Exact matches first, then prefixes, then word prefixes, then plain substrings
+        int rank(Map<Field, String> terms){
+            int rank = 0;
+            for(Map.Entry<Field, String> term : terms.entrySet()){
+                String value = value(term.getKey());
+                String q = term.getValue();
+                if(value.equals(q)) continue;
+                if(value.startsWith(q)) rank += 1;
+                else if(value.contains(" " + q)) rank += 2;
+                else rank += 3;
+            }
+            return rank;
+        }
+    }
+}
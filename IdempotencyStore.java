@@ -0,0 +1,112 @@
+package com.hotelbooking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Results of recent requests that carried an Idempotency-Key. The first request with a
+// key runs; retries with the same key get its result back, and retries that arrive while
+// it is still running wait for it instead of running again. Only results the caller marks
+// as worth keeping are stored, so a failed attempt can be retried. Entries expire after a
+// TTL and the least recently used are evicted past maxSize.
+@Component
+public class IdempotencyStore {
+
+    // A retry with a key that was first used for a different request
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String key){
+            super("Idempotency key reused with a different request: " + key);
+        }
+    }
+
+    private static final Object RETRY = new Object();
+
+    private record Entry(String fingerprint, CompletableFuture<Object> result, long expiresAt) {
+    }
+
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final Map<String, Entry> entries;
+
+    public IdempotencyStore(@Value("${idempotency.max-size:100000}") int maxSize,
+                            @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${idempotency.wait-millis:30000}") long waitMillis){
+        this.ttlMillis = ttlSeconds * 1000;
+        this.waitMillis = waitMillis;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest){
+                return size() > maxSize;
+            }
+        };
+    }
+
+    // Runs action once per key. The fingerprint identifies the request, so a key reused for
+    // a different request is rejected rather than answered with someone else's result.
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String fingerprint, Supplier<T> action, Predicate<T> keep) throws TimeoutException {
+        while(true){
+            Entry mine = new Entry(fingerprint, new CompletableFuture<>(), System.currentTimeMillis() + ttlMillis);
+            Entry existing;
+            synchronized(entries){
+                existing = entries.get(key);
+                if(existing == null || existing.expiresAt() <= System.currentTimeMillis()){
+                    entries.put(key, mine);
+                    existing = null;
+                }
+            }
+
+            if(existing == null){
+                return run(key, mine, action, keep);
+            }
+            if(!existing.fingerprint().equals(fingerprint)){
+                throw new KeyReusedException(key);
+            }
+            Object result = await(existing.result());
+            if(result != RETRY) return (T) result;
+            // The earlier attempt didn't produce a result worth keeping; try to run it ourselves
+        }
+    }
+
+    private <T> T run(String key, Entry entry, Supplier<T> action, Predicate<T> keep){
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            forget(key, entry);
+            throw e;
+        }
+        if(keep.test(result)){
+            entry.result().complete(result);
+        } else {
+            forget(key, entry);
+        }
+        return result;
+    }
+
+    private void forget(String key, Entry entry){
+        synchronized(entries){
+            entries.remove(key, entry);
+        }
+        entry.result().complete(RETRY);
+    }
+
+    private Object await(CompletableFuture<Object> result) throws TimeoutException {
+        try {
+            return result.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted waiting for an in-flight request");
+        } catch (ExecutionException e) {
+            // Futures are only ever completed normally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.hotelbooking.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.List;
+
+// One-off conversion of Hotel.roomsAvailable from "rooms left" to nightly capacity.
+// Before RoomInventoryLedger, booking creation decremented the column and deleting a
+// booking incremented it back, so every existing booking's rooms are still subtracted.
+// Enable with inventory.capacity-migration.enabled=true on the first start of the ledger
+// version, before it takes any booking. A row in app_migrations, inserted in the same
+// transaction as the capacity update, keeps it from running twice.
+// It runs before the ledger loads, which depends on it.
+@Component
+public class InventoryCapacityMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryCapacityMigration.class);
+    private static final String NAME = "inventory-nightly-capacity";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+
+    public InventoryCapacityMigration(PlatformTransactionManager transactionManager,
+                                      @Value("${inventory.capacity-migration.enabled:false}") boolean enabled){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void migrate(){
+        if(!enabled) return;
+        // DDL commits implicitly on MySQL, so the table is created on its own first
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(
+                "create table if not exists app_migrations (name varchar(100) primary key, applied_at timestamp not null)")
+            .executeUpdate());
+        Integer hotels;
+        try {
+            hotels = transactionTemplate.execute(status -> {
+                if(applied()) return null;
+                // Claimed first: a second instance racing this one fails on the key and rolls back
+                entityManager.createNativeQuery("insert into app_migrations (name, applied_at) values (?1, current_timestamp)")
+                    .setParameter(1, NAME)
+                    .executeUpdate();
+                List<Object[]> held = entityManager.createQuery(
+                        "select b.hotel.hotelId, sum(b.roomsBooked) from Booking b where b.hotel is not null group by b.hotel.hotelId",
+                        Object[].class)
+                    .getResultList();
+                for(Object[] row : held){
+                    entityManager.createQuery("update Hotel h set h.roomsAvailable = h.roomsAvailable + :rooms where h.hotelId = :hotelId")
+                        .setParameter("rooms", ((Number) row[1]).intValue())
+                        .setParameter("hotelId", row[0])
+                        .executeUpdate();
+                }
+                return held.size();
+            });
+        } catch (PersistenceException | DataIntegrityViolationException e) {
+            if(!transactionTemplate.execute(status -> applied())) throw e;
+            log.info("Capacity migration applied by another instance");
+            return;
+        }
+        if(hotels == null) return;
+        log.info("Restored nightly capacity for {} hotels from their existing bookings", hotels);
+    }
+
+    private boolean applied(){
+        Number rows = (Number) entityManager.createNativeQuery("select count(*) from app_migrations where name = ?1")
+            .setParameter(1, NAME)
+            .getSingleResult();
+        return rows.intValue() > 0;
+    }
+}
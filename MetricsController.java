@@ -0,0 +1,24 @@
+package com.hotelbooking.controller;
+
+import com.hotelbooking.metrics.MetricsRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final MetricsRegistry metricsRegistry;
+
+    public MetricsController(MetricsRegistry metricsRegistry){
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @GetMapping
+    public ResponseEntity<String> scrape(){
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("text/plain; version=0.0.4"))
+            .body(metricsRegistry.scrape());
+    }
+}
@@ -0,0 +1,90 @@
+package com.hotelbooking.metrics;
+
+import org.springframework.stereotype.Component;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// In-process metrics: per-endpoint request timers and gauges registered by other
+// components. Recording is a few LongAdder increments with no allocation, and the
+// whole registry is rendered in the Prometheus text format for local scraping.
+@Component
+public class MetricsRegistry {
+
+    // Upper bounds of the latency histogram buckets, in microseconds
+    private static final long[] BUCKETS_MICROS = {
+        100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+        100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Supplier<? extends Number>> gauges = new ConcurrentSkipListMap<>();
+
+    public Timer timer(String endpoint){
+        return timers.computeIfAbsent(endpoint, e -> new Timer());
+    }
+
+    public void gauge(String name, Supplier<? extends Number> value){
+        gauges.put(name, value);
+    }
+
+    public String scrape(){
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# TYPE http_requests_total counter\n");
+        out.append("# TYPE http_request_errors_total counter\n");
+        out.append("# TYPE http_request_duration_seconds histogram\n");
+        new ConcurrentSkipListMap<>(timers).forEach((endpoint, timer) -> timer.render(out, endpoint));
+        for(Map.Entry<String, Supplier<? extends Number>> gauge : gauges.entrySet()){
+            out.append("# TYPE ").append(gauge.getKey()).append(" gauge\n");
+            out.append(gauge.getKey()).append(' ').append(gauge.getValue().get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    public static final class Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS_MICROS.length + 1];
+
+        Timer(){
+            for(int i = 0; i < buckets.length; i++){
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos, int status){
+            count.increment();
+            totalNanos.add(nanos);
+            if(status >= 500) serverErrors.increment();
+            else if(status >= 400) clientErrors.increment();
+
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = 0;
+            while(bucket < BUCKETS_MICROS.length && micros > BUCKETS_MICROS[bucket]) bucket++;
+            buckets[bucket].increment();
+        }
+
+        void render(StringBuilder out, String endpoint){
+            String label = "{endpoint=\"" + endpoint + "\"";
+            out.append("http_requests_total").append(label).append("} ").append(count.sum()).append('\n');
+            out.append("http_request_errors_total").append(label).append(",class=\"4xx\"} ").append(clientErrors.sum()).append('\n');
+            out.append("http_request_errors_total").append(label).append(",class=\"5xx\"} ").append(serverErrors.sum()).append('\n');
+            long cumulative = 0;
+            for(int i = 0; i < buckets.length; i++){
+                cumulative += buckets[i].sum();
+                String le = i < BUCKETS_MICROS.length ? Double.toString(BUCKETS_MICROS[i] / 1_000_000.0) : "+Inf";
+                out.append("http_request_duration_seconds_bucket").append(label).append(",le=\"").append(le).append("\"} ")
+                    .append(cumulative).append('\n');
+            }
+            out.append("http_request_duration_seconds_sum").append(label).append("} ")
+                .append(totalNanos.sum() / 1_000_000_000.0).append('\n');
+            out.append("http_request_duration_seconds_count").append(label).append("} ").append(cumulative).append('\n');
+        }
+    }
+}
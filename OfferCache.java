@@ -0,0 +1,210 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Offer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Offers that haven't ended, held per hotel in order of the start of their validity
+// window and filtered against today on every read, so an offer shows up the day it starts
+// and disappears the day after it ends without waiting for a refresh. Validity is by day,
+// so each hotel's active list and best offer are worked out once per day and then served
+// as they are. createOffer/deleteOffer update the one hotel they touch; the scheduled
+// refresh re-reads the table as a safety net and drops ended offers from memory. Only
+// hotels in the catalog are kept, so a deleted hotel's offers drop out on refresh.
+@Component
+public class OfferCache {
+
+    private static final Comparator<Offer> BY_START =
+        Comparator.comparing(Offer::getValidFrom, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final OfferService offerService;
+    private final HotelCatalogCache catalogCache;
+
+    // Per-hotel entries are swapped one at a time under writeLock; readers never lock
+    private final Object writeLock = new Object();
+    private volatile Map<Long, Window> byHotel;
+    private volatile Window all;
+
+    public OfferCache(OfferService offerService, HotelCatalogCache catalogCache){
+        this.offerService = offerService;
+        this.catalogCache = catalogCache;
+    }
+
+    public List<Offer> activeOffers(){
+        loaded();
+        return all.active(LocalDate.now()).offers();
+    }
+
+    public List<Offer> activeOffersForHotel(Long hotelId){
+        Window window = loaded().get(hotelId);
+        return window == null ? List.of() : window.active(LocalDate.now()).offers();
+    }
+
+    // Percentage off from the hotel's best active offer, 0 without one; after the first
+    // lookup of the day this is a map read and a field read
+    public double bestDiscountForHotel(Long hotelId){
+        Window window = loaded().get(hotelId);
+        Offer best = window == null ? null : window.active(LocalDate.now()).best();
+        return best == null ? 0 : discountOf(best);
+    }
+
+    // Called once createOffer has saved the offer; replaces an earlier copy of it
+    public void added(Offer offer){
+        synchronized(writeLock){
+            Map<Long, Window> current = loaded();
+            drop(current, offer.getOfferId());
+            Long hotelId = hotelIdOf(offer);
+            if(hotelId != null && catalogCache.findById(hotelId).isPresent()){
+                current.merge(hotelId, new Window(List.of(offer)), (was, one) -> was.with(offer));
+            }
+            all = all.with(offer);
+        }
+    }
+
+    public void removed(Long offerId){
+        synchronized(writeLock){
+            drop(loaded(), offerId);
+        }
+    }
+
+    // Holds off create/delete while the table is read, so neither can be lost in between
+    @Scheduled(cron = "${offers.cache.refresh-cron:0 */5 * * * *}")
+    public void refresh(){
+        synchronized(writeLock){
+            replace(offerService.getAllOffers());
+        }
+    }
+
+    // Every hotel's offers that haven't ended, for the catalog snapshot
+    public Map<Long, List<Offer>> cachedByHotel(){
+        Map<Long, List<Offer>> copy = new HashMap<>();
+        loaded().forEach((hotelId, window) -> copy.put(hotelId, window.offers));
+        return copy;
+    }
+
+    // Seeds the cache from a snapshot before the first read; the reconcile refresh replaces it
+    public void preload(Map<Long, List<Offer>> offersByHotel){
+        synchronized(writeLock){
+            if(byHotel != null) return;
+            List<Offer> offers = new ArrayList<>();
+            offersByHotel.values().forEach(offers::addAll);
+            replace(offers);
+        }
+    }
+
+    private Map<Long, Window> loaded(){
+        Map<Long, Window> current = byHotel;
+        if(current != null) return current;
+        synchronized(writeLock){
+            if(byHotel == null) replace(offerService.getAllOffers());
+            return byHotel;
+        }
+    }
+
+    private void replace(Collection<Offer> offers){
+        LocalDate today = LocalDate.now();
+        Map<Long, List<Offer>> grouped = new HashMap<>();
+        List<Offer> current = new ArrayList<>(offers.size());
+        for(Offer offer : offers){
+            if(ended(offer, today)) continue;
+            current.add(offer);
+            Long hotelId = hotelIdOf(offer);
+            if(hotelId != null && catalogCache.findById(hotelId).isPresent()){
+                grouped.computeIfAbsent(hotelId, id -> new ArrayList<>()).add(offer);
+            }
+        }
+        ConcurrentHashMap<Long, Window> next = new ConcurrentHashMap<>(grouped.size() * 2);
+        grouped.forEach((hotelId, hotelOffers) -> next.put(hotelId, new Window(hotelOffers)));
+        all = new Window(current);
+        byHotel = next;
+    }
+
+    // Takes an offer out of the hotel it was cached under; only that hotel's entry changes
+    private void drop(Map<Long, Window> windows, Long offerId){
+        Offer previous = all.find(offerId);
+        if(previous == null) return;
+        Long hotelId = hotelIdOf(previous);
+        if(hotelId != null){
+            windows.computeIfPresent(hotelId, (id, window) -> {
+                Window rest = window.without(offerId);
+                return rest.offers.isEmpty() ? null : rest;
+            });
+        }
+        all = all.without(offerId);
+    }
+
+    private static Long hotelIdOf(Offer offer){
+        return offer.getHotel() == null ? null : offer.getHotel().getHotelId();
+    }
+
+    private static boolean ended(Offer offer, LocalDate day){
+        return offer.getValidUntil() != null && offer.getValidUntil().isBefore(day);
+    }
+
+    private static double discountOf(Offer offer){
+        return offer.getDiscountPercentage() == null ? 0 : offer.getDiscountPercentage();
+    }
+
+    private record Active(LocalDate day, List<Offer> offers, Offer best) {
+    }
+
+    // One hotel's offers, immutable apart from the memo of the day's active ones
+    private static final class Window {
+        final List<Offer> offers;
+        volatile Active active;
+
+        Window(Collection<Offer> offers){
+            List<Offer> sorted = new ArrayList<>(offers);
+            sorted.sort(BY_START);
+            this.offers = List.copyOf(sorted);
+        }
+
+        Active active(LocalDate day){
+            Active memo = active;
+            if(memo != null && memo.day().equals(day)) return memo;
+            List<Offer> current = new ArrayList<>();
+            Offer best = null;
+            for(Offer offer : offers){
+                // Sorted by start, so the rest haven't started either
+                if(offer.getValidFrom() != null && offer.getValidFrom().isAfter(day)) break;
+                if(ended(offer, day)) continue;
+                current.add(offer);
+                if(best == null || discountOf(offer) > discountOf(best)) best = offer;
+            }
+            memo = new Active(day, List.copyOf(current), best);
+            active = memo;
+            return memo;
+        }
+
+        Offer find(Long offerId){
+            for(Offer offer : offers){
+                if(Objects.equals(offer.getOfferId(), offerId)) return offer;
+            }
+            return null;
+        }
+
+        Window with(Offer offer){
+            List<Offer> next = new ArrayList<>(offers.size() + 1);
+            next.addAll(offers);
+            next.add(offer);
+            return new Window(next);
+        }
+
+        Window without(Long offerId){
+            List<Offer> next = new ArrayList<>(offers.size());
+            for(Offer existing : offers){
+                if(!Objects.equals(existing.getOfferId(), offerId)) next.add(existing);
+            }
+            return new Window(next);
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package com.hotelbooking.controller;
 
 import com.hotelbooking.entity.Offer;
-import com.hotelbooking.entity.User;
-import com.hotelbooking.repository.UserRepository;
+import com.hotelbooking.security.RequiresRole;
+import com.hotelbooking.service.OfferCache;
 import com.hotelbooking.service.OfferService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/offers")
@@ -15,39 +14,36 @@ import java.util.Optional;
 public class OfferController {
     
     private final OfferService offerService;
-    private final UserRepository userRepository;
+    private final OfferCache offerCache;
     
-    public OfferController(OfferService offerService, UserRepository userRepository) {
+    public OfferController(OfferService offerService, OfferCache offerCache) {
         this.offerService = offerService;
-        this.userRepository = userRepository;
+        this.offerCache = offerCache;
     }
     
     @PostMapping
+    @RequiresRole("ADMIN")
     public ResponseEntity<Offer> createOffer(@RequestParam Long adminId, @RequestBody Offer offer) {
-        Optional<User> userOpt = userRepository.findById(adminId);
-        if (userOpt.isEmpty() || !"ADMIN".equals(userOpt.get().getRole())) {
-            return ResponseEntity.status(403).build();
-        }
-        return ResponseEntity.ok(offerService.saveOffer(offer));
+        Offer savedOffer = offerService.saveOffer(offer);
+        offerCache.added(savedOffer);
+        return ResponseEntity.ok(savedOffer);
     }
     
     @GetMapping("/active")
     public List<Offer> getActiveOffers() {
-        return offerService.getActiveOffers();
+        return offerCache.activeOffers();
     }
     
     @GetMapping("/hotel/{hotelId}")
     public List<Offer> getHotelOffers(@PathVariable Long hotelId) {
-        return offerService.getActiveOffersForHotel(hotelId);
+        return offerCache.activeOffersForHotel(hotelId);
     }
     
     @DeleteMapping("/{offerId}")
+    @RequiresRole("ADMIN")
     public ResponseEntity<Void> deleteOffer(@RequestParam Long adminId, @PathVariable Long offerId) {
-        Optional<User> userOpt = userRepository.findById(adminId);
-        if (userOpt.isEmpty() || !"ADMIN".equals(userOpt.get().getRole())) {
-            return ResponseEntity.status(403).build();
-        }
         offerService.deleteOffer(offerId);
+        offerCache.removed(offerId);
         return ResponseEntity.ok().build();
     }
 }
\ No newline at end of file
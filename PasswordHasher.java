@@ -0,0 +1,134 @@
+package com.hotelbooking.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// PBKDF2-HMAC-SHA256 password hashes, stored as pbkdf2$<iterations>$<salt>$<hash>.
+// Hashing is deliberately slow, so it runs on a small bounded pool: a burst of logins
+// queues there (and is turned away once the queue is full) instead of taking every
+// request thread's CPU. Rows still holding a plaintext password are accepted and
+// reported by needsRehash, so they are migrated on the user's next login.
+@Component
+public class PasswordHasher {
+
+    // Thrown when the hashing pool is saturated; callers answer 503
+    public static class BusyException extends RuntimeException {
+        public BusyException(Throwable cause){
+            super("Password hashing is saturated", cause);
+        }
+    }
+
+    private static final String PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final long waitMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadPoolExecutor pool;
+
+    public PasswordHasher(@Value("${auth.password.iterations:210000}") int iterations,
+                          @Value("${auth.password.threads:0}") int threads,
+                          @Value("${auth.password.queue:64}") int queue,
+                          @Value("${auth.password.wait-millis:5000}") long waitMillis){
+        this.iterations = iterations;
+        this.waitMillis = waitMillis;
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue),
+            task -> {
+                Thread thread = new Thread(task, "password-hash-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    public String hash(String password){
+        return run(() -> {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            byte[] hash = derive(password, salt, iterations);
+            Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+            return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+        });
+    }
+
+    public boolean matches(String password, String stored){
+        if(password == null || stored == null) return false;
+        if(!stored.startsWith(PREFIX)){
+            // Legacy plaintext row
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if(parts.length != 4) return false;
+        int rounds;
+        byte[] salt;
+        byte[] expected;
+        try {
+            rounds = Integer.parseInt(parts[1]);
+            salt = Base64.getDecoder().decode(parts[2]);
+            expected = Base64.getDecoder().decode(parts[3]);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return run(() -> MessageDigest.isEqual(expected, derive(password, salt, rounds)));
+    }
+
+    // Plaintext rows and hashes made with a different cost are rewritten after a successful login
+    public boolean needsRehash(String stored){
+        return stored == null || !stored.startsWith(PREFIX + iterations + "$");
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    private <T> T run(Callable<T> work){
+        Future<T> future;
+        try {
+            future = pool.submit(work);
+        } catch (RejectedExecutionException e) {
+            throw new BusyException(e);
+        }
+        try {
+            return future.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusyException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new BusyException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int rounds) throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, rounds, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
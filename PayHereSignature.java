@@ -0,0 +1,29 @@
+package com.hotelbooking.service;
+
+import org.springframework.util.DigestUtils;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+// Verifies the md5sig PayHere sends with every payment notification.
+// The hashed merchant secret never changes, so it is computed once up front.
+public final class PayHereSignature {
+
+    private final String hashedSecret;
+
+    public PayHereSignature(String merchantSecret){
+        this.hashedSecret = DigestUtils.md5DigestAsHex(merchantSecret.getBytes(StandardCharsets.UTF_8)).toUpperCase();
+    }
+
+    public boolean verify(Map<String,String> params){
+        String md5sig = params.get("md5sig");
+        if(md5sig == null) return false;
+
+        String payload = params.get("merchant_id") + params.get("order_id") + params.get("payhere_amount")
+            + params.get("payhere_currency") + params.get("status_code") + hashedSecret;
+        String localSig = DigestUtils.md5DigestAsHex(payload.getBytes(StandardCharsets.UTF_8)).toUpperCase();
+
+        return MessageDigest.isEqual(localSig.getBytes(StandardCharsets.US_ASCII),
+            md5sig.toUpperCase().getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -1,50 +1,60 @@
 package com.hotelbooking.controller;
 
-import com.hotelbooking.service.BookingService;
-import org.springframework.util.DigestUtils;
+import com.hotelbooking.service.PayHereSignature;
+import com.hotelbooking.service.PaymentNotificationPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
+import java.io.IOException;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/payhere")
 public class PaymentController {
 
-    private final BookingService bookingService;
-    private final String merchantSecret = "YOUR_MERCHANT_SECRET";
+    private static final Logger log = LoggerFactory.getLogger(PaymentController.class);
 
-    public PaymentController(BookingService bookingService){
-        this.bookingService = bookingService;
+    private final PaymentNotificationPipeline notificationPipeline;
+    private final PayHereSignature signature = new PayHereSignature("YOUR_MERCHANT_SECRET");
+
+    public PaymentController(PaymentNotificationPipeline notificationPipeline){
+        this.notificationPipeline = notificationPipeline;
     }
 
     @PostMapping("/notify")
     public ResponseEntity<String> payhereNotify(@RequestParam Map<String,String> params){
-        String merchantId = params.get("merchant_id");
         String orderId = params.get("order_id");
-        String payhereAmount = params.get("payhere_amount");
-        String currency = params.get("payhere_currency");
         String statusCode = params.get("status_code");
-        String md5sig = params.get("md5sig");
         String paymentId = params.get("payment_id");
 
         // MD5 verification
-        String localSig = DigestUtils.md5DigestAsHex(
-                (merchantId + orderId + payhereAmount + currency + statusCode + DigestUtils.md5DigestAsHex(merchantSecret.getBytes()).toUpperCase())
-                        .getBytes()).toUpperCase();
-
-        if(!localSig.equalsIgnoreCase(md5sig)){
+        if(!signature.verify(params)){
             return ResponseEntity.badRequest().body("INVALID SIGNATURE");
         }
 
-        int code = Integer.parseInt(statusCode);
-        if(code == 2){
-            bookingService.markBookingPaid(orderId, paymentId);
-        } else if(code == 0){
-            bookingService.markBookingPending(orderId);
-        } else {
-            bookingService.markBookingFailed(orderId);
+        int code;
+        try {
+            code = Integer.parseInt(statusCode);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body("INVALID STATUS");
+        }
+
+        // Acknowledge once the notification is durably queued; the status change is applied asynchronously
+        try {
+            if(notificationPipeline.submit(orderId, paymentId, code) == PaymentNotificationPipeline.Result.QUEUE_FULL){
+                return ResponseEntity.status(503).body("BUSY");
+            }
+        } catch (IOException e) {
+            log.error("Failed to log PayHere notification for order {}", orderId, e);
+            return ResponseEntity.status(503).body("BUSY");
         }
 
         return ResponseEntity.ok("OK");
     }
+
+    @GetMapping("/queue")
+    public Map<String, Object> queueStats(){
+        return notificationPipeline.stats();
+    }
 }
@@ -0,0 +1,324 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.metrics.MetricsRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Applies PayHere notifications off the request thread. Each accepted notification is
+// appended to a local log before it is acknowledged, queued, and applied in batches by
+// a single worker. A checkpoint records the last applied entry, so anything logged but
+// not applied is replayed after a restart.
+@Service
+public class PaymentNotificationPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentNotificationPipeline.class);
+
+    public enum Result { ACCEPTED, DUPLICATE, QUEUE_FULL }
+
+    public record Notification(long sequence, String orderId, String paymentId, int statusCode, long receivedAt) {
+    }
+
+    private static final int RECENT_KEYS = 50_000;
+    private static final long RETRY_MILLIS = 30_000;
+
+    private final BookingService bookingService;
+    private final BookingExpiryScheduler expiryScheduler;
+    private final BookingEventPublisher bookingEvents;
+    private final TransactionTemplate transactionTemplate;
+    private final ArrayBlockingQueue<Notification> queue;
+    private final int batchSize;
+    private final Path logPath;
+    private final Path checkpointPath;
+
+    private final Object appendLock = new Object();
+    private final Map<String, Boolean> recentKeys = new LinkedHashMap<>(1024, 0.75f, false){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest){
+            return size() > RECENT_KEYS;
+        }
+    };
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Notifications that could not be applied, by sequence. The checkpoint never moves past
+    // the oldest of them, so they are also replayed after a restart. Worker thread only.
+    private final TreeMap<Long, Notification> unresolved = new TreeMap<>();
+    private long highestProcessed;
+    private long nextRetryAt;
+
+    private FileChannel journal;
+    private long nextSequence = 1;
+    private volatile long lastApplied;
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public PaymentNotificationPipeline(BookingService bookingService,
+                                       BookingExpiryScheduler expiryScheduler,
+                                       BookingEventPublisher bookingEvents,
+                                       PlatformTransactionManager transactionManager,
+                                       MetricsRegistry metricsRegistry,
+                                       @Value("${payhere.queue.capacity:10000}") int capacity,
+                                       @Value("${payhere.queue.batch-size:100}") int batchSize,
+                                       @Value("${payhere.queue.log-path:data/payhere-notifications.log}") String logPath){
+        this.bookingService = bookingService;
+        this.expiryScheduler = expiryScheduler;
+        this.bookingEvents = bookingEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.logPath = Paths.get(logPath);
+        this.checkpointPath = Paths.get(logPath + ".checkpoint");
+
+        metricsRegistry.gauge("payhere_queue_depth", queue::size);
+        metricsRegistry.gauge("payhere_queue_lag_millis", this::lagMillis);
+        metricsRegistry.gauge("payhere_notifications_applied", applied::get);
+        metricsRegistry.gauge("payhere_notifications_duplicate", duplicates::get);
+        metricsRegistry.gauge("payhere_notifications_rejected", rejected::get);
+        metricsRegistry.gauge("payhere_notifications_failed", failed::get);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if(logPath.getParent() != null) Files.createDirectories(logPath.getParent());
+        lastApplied = Files.exists(checkpointPath)
+            ? Long.parseLong(Files.readString(checkpointPath, StandardCharsets.UTF_8).trim()) : 0;
+
+        // Replay whatever was acknowledged but not applied before the last shutdown
+        List<Notification> pending = new ArrayList<>();
+        if(Files.exists(logPath)){
+            for(String line : Files.readAllLines(logPath, StandardCharsets.UTF_8)){
+                Notification notification = parse(line);
+                if(notification == null) continue;
+                nextSequence = Math.max(nextSequence, notification.sequence() + 1);
+                if(notification.sequence() > lastApplied) pending.add(notification);
+            }
+        }
+        nextSequence = Math.max(nextSequence, lastApplied + 1);
+        journal = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if(pending.isEmpty()){
+            journal.truncate(0);
+        } else {
+            log.info("Replaying {} PayHere notifications from {}", pending.size(), logPath);
+            apply(pending);
+        }
+
+        worker = new Thread(this::drain, "payhere-notify-worker");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        journal.close();
+    }
+
+    // Logs and queues a verified notification; only then may the caller acknowledge it
+    public Result submit(String orderId, String paymentId, int statusCode) throws IOException {
+        String key = key(orderId, paymentId, statusCode);
+        synchronized(appendLock){
+            if(recentKeys.containsKey(key)){
+                duplicates.incrementAndGet();
+                return Result.DUPLICATE;
+            }
+            if(queue.remainingCapacity() == 0){
+                rejected.incrementAndGet();
+                return Result.QUEUE_FULL;
+            }
+            Notification notification = new Notification(nextSequence++, orderId, paymentId, statusCode, System.currentTimeMillis());
+            journal.write(ByteBuffer.wrap(format(notification).getBytes(StandardCharsets.UTF_8)));
+            journal.force(false);
+            recentKeys.put(key, Boolean.TRUE);
+            // Only the worker removes from the queue, so the capacity checked above is still there
+            queue.add(notification);
+            return Result.ACCEPTED;
+        }
+    }
+
+    public Map<String, Object> stats(){
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("lagMillis", lagMillis());
+        stats.put("applied", applied.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("rejected", rejected.get());
+        stats.put("failed", failed.get());
+        stats.put("lastAppliedSequence", lastApplied);
+        stats.put("unresolved", unresolved.size());
+        return stats;
+    }
+
+    private long lagMillis(){
+        Notification head = queue.peek();
+        return head == null ? 0 : System.currentTimeMillis() - head.receivedAt();
+    }
+
+    private void drain(){
+        List<Notification> batch = new ArrayList<>(batchSize);
+        while(running){
+            try {
+                if(!unresolved.isEmpty() && System.currentTimeMillis() >= nextRetryAt){
+                    retryUnresolved();
+                }
+                Notification first = queue.poll(1, TimeUnit.SECONDS);
+                if(first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("PayHere notification batch failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<Notification> batch) throws IOException {
+        // Only the latest notification per order matters within a batch
+        Map<String, Notification> latest = new LinkedHashMap<>();
+        for(Notification notification : batch){
+            latest.remove(notification.orderId());
+            latest.put(notification.orderId(), notification);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> latest.values().forEach(this::transition));
+            latest.values().forEach(this::resolved);
+        } catch (RuntimeException e) {
+            // Fall back to one transaction per order so one bad row doesn't block the rest
+            for(Notification notification : latest.values()){
+                if(applyOne(notification)) resolved(notification);
+                else unresolved(notification);
+            }
+        }
+        highestProcessed = Math.max(highestProcessed, batch.get(batch.size() - 1).sequence());
+        checkpoint(safeCheckpoint());
+    }
+
+    private void retryUnresolved() throws IOException {
+        for(Notification notification : new ArrayList<>(unresolved.values())){
+            if(applyOne(notification)) resolved(notification);
+        }
+        nextRetryAt = System.currentTimeMillis() + RETRY_MILLIS;
+        checkpoint(safeCheckpoint());
+    }
+
+    private boolean applyOne(Notification notification){
+        try {
+            transactionTemplate.executeWithoutResult(status -> transition(notification));
+            return true;
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.error("Failed to apply PayHere notification for order {}", notification.orderId(), e);
+            return false;
+        }
+    }
+
+    // An applied notification also settles any older failed one for the same order
+    private void resolved(Notification notification){
+        applied.incrementAndGet();
+        unresolved.values().removeIf(pending -> pending.orderId().equals(notification.orderId())
+            && pending.sequence() <= notification.sequence());
+    }
+
+    // Kept for retry, and forgotten as a duplicate so PayHere's own retry is accepted again
+    private void unresolved(Notification notification){
+        if(unresolved.isEmpty()) nextRetryAt = System.currentTimeMillis() + RETRY_MILLIS;
+        unresolved.put(notification.sequence(), notification);
+        synchronized(appendLock){
+            recentKeys.remove(key(notification.orderId(), notification.paymentId(), notification.statusCode()));
+        }
+    }
+
+    private long safeCheckpoint(){
+        long target = unresolved.isEmpty() ? highestProcessed : unresolved.firstKey() - 1;
+        return Math.max(lastApplied, target);
+    }
+
+    private void transition(Notification notification){
+        if(notification.statusCode() == 2){
+            // A booking that no longer holds rooms has to get them back before it can be paid
+            if(expiryScheduler.prepareTransition(notification.orderId(), "paid")){
+                bookingService.markBookingPaid(notification.orderId(), notification.paymentId());
+                bookingEvents.statusChanged(notification.orderId(), "paid");
+            } else {
+                log.warn("Order {} cannot be marked paid, payment {} needs a refund", notification.orderId(), notification.paymentId());
+            }
+        } else if(notification.statusCode() == 0){
+            if(expiryScheduler.prepareTransition(notification.orderId(), "pending")){
+                bookingService.markBookingPending(notification.orderId());
+                bookingEvents.statusChanged(notification.orderId(), "pending");
+            }
+        } else {
+            expiryScheduler.releaseForFailedPayment(notification.orderId());
+            bookingService.markBookingFailed(notification.orderId());
+            bookingEvents.statusChanged(notification.orderId(), "failed");
+        }
+    }
+
+    private void checkpoint(long sequence) throws IOException {
+        Path tmp = Paths.get(checkpointPath + ".tmp");
+        Files.writeString(tmp, Long.toString(sequence), StandardCharsets.UTF_8);
+        Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastApplied = sequence;
+
+        // Once everything logged has been applied the log can start over
+        synchronized(appendLock){
+            if(sequence == nextSequence - 1 && journal != null){
+                journal.truncate(0);
+            }
+        }
+    }
+
+    private static String key(String orderId, String paymentId, int statusCode){
+        return orderId + '|' + statusCode + '|' + paymentId;
+    }
+
+    private static String format(Notification n){
+        return n.sequence() + "\t" + n.orderId() + "\t" + (n.paymentId() == null ? "" : n.paymentId())
+            + "\t" + n.statusCode() + "\t" + n.receivedAt() + "\n";
+    }
+
+    private static Notification parse(String line){
+        String[] parts = line.split("\t", -1);
+        if(parts.length != 5) return null;
+        try {
+            return new Notification(Long.parseLong(parts[0]), parts[1], parts[2].isEmpty() ? null : parts[2],
+                Integer.parseInt(parts[3]), Long.parseLong(parts[4]));
+        } catch (NumberFormatException e) {
+            // A torn final line from a crash mid-write
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.hotelbooking.security;
+
+import com.hotelbooking.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Role and status of recently seen users, so authorising a request is a map lookup
+// rather than a findById. Entries expire after a TTL, the least recently used are
+// evicted past maxSize, and anything that changes a user's role or status must
+// call invalidate.
+@Component
+public class PrincipalCache {
+
+    public record Principal(Long userId, String role, String status) {
+        public boolean hasAnyRole(String... roles){
+            for(String candidate : roles){
+                if(candidate.equals(role)) return true;
+            }
+            return false;
+        }
+    }
+
+    private record Entry(Principal principal, long expiresAt) {
+    }
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries;
+
+    public PrincipalCache(UserRepository userRepository,
+                          @Value("${auth.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${auth.principal-cache.ttl-seconds:300}") long ttlSeconds){
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest){
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Optional<Principal> get(Long userId){
+        long now = System.currentTimeMillis();
+        synchronized(entries){
+            Entry entry = entries.get(userId);
+            if(entry != null && entry.expiresAt() > now) return Optional.of(entry.principal());
+        }
+        // Unknown users are not cached, a later registration must be visible straight away
+        Optional<Principal> loaded = userRepository.findById(userId)
+            .map(user -> new Principal(user.getUserId(), user.getRole(), user.getStatus()));
+        loaded.ifPresent(principal -> {
+            synchronized(entries){
+                entries.put(userId, new Entry(principal, now + ttlMillis));
+            }
+        });
+        return loaded;
+    }
+
+    public void invalidate(Long userId){
+        evict(userId);
+        // Evict again after commit so a lookup racing the transaction can't re-cache the old row
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization(){
+                @Override
+                public void afterCommit(){
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId){
+        synchronized(entries){
+            entries.remove(userId);
+        }
+    }
+}
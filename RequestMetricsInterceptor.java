@@ -0,0 +1,41 @@
+package com.hotelbooking.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Times every handler in com.hotelbooking.controller and records it under
+// "<Controller>.<method>" in the MetricsRegistry
+@Component
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+    private static final String CONTROLLER_PACKAGE = "com.hotelbooking.controller";
+
+    private final MetricsRegistry metricsRegistry;
+
+    public RequestMetricsInterceptor(MetricsRegistry metricsRegistry){
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler){
+        if(request.getAttribute(START_ATTRIBUTE) == null){
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex){
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if(start == null || !(handler instanceof HandlerMethod method)) return;
+        if(!CONTROLLER_PACKAGE.equals(method.getBeanType().getPackageName())) return;
+
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        metricsRegistry.timer(method.getBeanType().getSimpleName() + "." + method.getMethod().getName())
+            .record(System.nanoTime() - (Long) start, status);
+    }
+}
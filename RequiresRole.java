@@ -0,0 +1,20 @@
+package com.hotelbooking.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Restricts a handler to users holding one of the given roles. The acting user's ID
+// is read from the named request parameter and checked by RoleAuthorizationInterceptor.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequiresRole {
+
+    String[] value();
+
+    String param() default "adminId";
+
+    // When true, requests without the parameter are let through unchecked
+    boolean optional() default false;
+}
@@ -0,0 +1,98 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Booking;
+import com.hotelbooking.entity.Hotel;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Reservation path for new bookings: rooms are taken from the nightly ledger first,
+// then the booking row is written. A failed write hands the rooms straight back, so
+// the ledger never holds rooms for a booking that doesn't exist. Saved bookings start
+// their unpaid hold window.
+@Service
+public class ReservationEngine {
+
+    private final BookingService bookingService;
+    private final RoomInventoryLedger inventoryLedger;
+    private final BookingExpiryScheduler expiryScheduler;
+    private final BookingEventPublisher bookingEvents;
+    private final TransactionTemplate transactionTemplate;
+
+    public ReservationEngine(BookingService bookingService, RoomInventoryLedger inventoryLedger,
+                             BookingExpiryScheduler expiryScheduler, BookingEventPublisher bookingEvents,
+                             PlatformTransactionManager transactionManager){
+        this.bookingService = bookingService;
+        this.inventoryLedger = inventoryLedger;
+        this.expiryScheduler = expiryScheduler;
+        this.bookingEvents = bookingEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Returns empty when the hotel can't cover every night of the stay
+    public Optional<Booking> reserve(Booking booking){
+        Hotel hotel = booking.getHotel();
+        if(!inventoryLedger.reserve(hotel, booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked())){
+            return Optional.empty();
+        }
+        Booking saved;
+        try {
+            saved = bookingService.saveBooking(booking);
+        } catch (RuntimeException e) {
+            inventoryLedger.release(hotel.getHotelId(), booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked());
+            throw e;
+        }
+        expiryScheduler.track(saved);
+        bookingEvents.saved(saved);
+        return Optional.of(saved);
+    }
+
+    // Reserves a batch of bookings and writes the reserved ones in a single transaction.
+    // The result lines up with the input: the saved booking, or null where the rooms
+    // couldn't be reserved. With atomic set, one failure leaves every line unreserved.
+    public List<Booking> reserveBatch(List<Booking> bookings, boolean atomic){
+        List<Booking> reserved = new ArrayList<>(bookings.size());
+        if(atomic){
+            List<RoomInventoryLedger.Stay> stays = new ArrayList<>(bookings.size());
+            for(Booking booking : bookings){
+                stays.add(new RoomInventoryLedger.Stay(booking.getHotel(), booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked()));
+            }
+            boolean all = inventoryLedger.reserveAll(stays) < 0;
+            for(Booking booking : bookings){
+                reserved.add(all ? booking : null);
+            }
+        } else {
+            for(Booking booking : bookings){
+                boolean ok = inventoryLedger.reserve(booking.getHotel(), booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked());
+                reserved.add(ok ? booking : null);
+            }
+        }
+
+        List<Booking> written;
+        try {
+            written = transactionTemplate.execute(status -> {
+                List<Booking> saved = new ArrayList<>(reserved.size());
+                for(Booking booking : reserved){
+                    saved.add(booking == null ? null : bookingService.saveBooking(booking));
+                }
+                return saved;
+            });
+        } catch (RuntimeException e) {
+            for(Booking booking : reserved){
+                if(booking != null){
+                    inventoryLedger.release(booking.getHotel().getHotelId(), booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked());
+                }
+            }
+            throw e;
+        }
+        for(Booking booking : written){
+            if(booking == null) continue;
+            expiryScheduler.track(booking);
+            bookingEvents.saved(booking);
+        }
+        return written;
+    }
+}
@@ -0,0 +1,45 @@
+package com.hotelbooking.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import java.util.Optional;
+
+@Component
+public class RoleAuthorizationInterceptor implements HandlerInterceptor {
+
+    public static final String PRINCIPAL_ATTRIBUTE = RoleAuthorizationInterceptor.class.getName() + ".principal";
+
+    private final PrincipalCache principalCache;
+
+    public RoleAuthorizationInterceptor(PrincipalCache principalCache){
+        this.principalCache = principalCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler){
+        if(!(handler instanceof HandlerMethod method)) return true;
+        RequiresRole requiresRole = method.getMethodAnnotation(RequiresRole.class);
+        if(requiresRole == null) return true;
+
+        // A missing or malformed ID is left to parameter binding, which rejects it with a 400
+        String value = request.getParameter(requiresRole.param());
+        if(value == null) return true;
+        Long userId;
+        try {
+            userId = Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            return true;
+        }
+
+        Optional<PrincipalCache.Principal> principal = principalCache.get(userId);
+        if(principal.isEmpty() || !principal.get().hasAnyRole(requiresRole.value())){
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return false;
+        }
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal.get());
+        return true;
+    }
+}
@@ -0,0 +1,262 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Hotel;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Per-hotel, per-night room inventory. Hotel.roomsAvailable is the nightly capacity;
+// the ledger holds how many of those rooms are booked on each night of a stay.
+@Component
+public class RoomInventoryLedger {
+
+    // Bookings in these states no longer hold rooms
+    private static final Set<String> RELEASED_STATUSES = Set.of("cancelled", "failed", "expired");
+
+    public record Stay(Hotel hotel, LocalDate checkIn, LocalDate checkOut, int rooms) {
+    }
+
+    // Hotels are serialized through a fixed set of lock stripes, so contention stays
+    // per hotel without a lock object per hotel or a global lock
+    private static final int STRIPES = 64;
+
+    // Bookings can't be made further ahead than this
+    private static final int HORIZON_NIGHTS = 3 * 366;
+
+    private final BookingEventPublisher bookingEvents;
+    private final ConcurrentHashMap<Long, HotelNights> ledgers = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // The migration is a dependency only so it has finished before the ledger loads
+    public RoomInventoryLedger(BookingEventPublisher bookingEvents, InventoryCapacityMigration capacityMigration){
+        this.bookingEvents = bookingEvents;
+        for(int i = 0; i < STRIPES; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Loaded before the web server starts, so no booking is checked against an empty ledger
+    @PostConstruct
+    public void loadExistingBookings(){
+        // The publisher's facts already cover every stay that hasn't ended
+        for(BookingEventPublisher.Fact fact : bookingEvents.facts()){
+            if(fact.hotelId() != null && fact.checkIn() != null && holdsRooms(fact.status()) && withinHorizon(fact.checkOut())){
+                adjust(fact.hotelId(), fact.checkIn(), fact.checkOut(), fact.rooms());
+            }
+        }
+    }
+
+    public static boolean holdsRooms(String status){
+        return status == null || !RELEASED_STATUSES.contains(status.toLowerCase());
+    }
+
+    // Reserves rooms on every night of the stay, or on none of them
+    public boolean reserve(Hotel hotel, LocalDate checkIn, LocalDate checkOut, int rooms){
+        if(rooms <= 0 || !withinHorizon(checkOut)) return false;
+        ReentrantLock lock = stripeFor(hotel.getHotelId());
+        lock.lock();
+        try {
+            return ledgerFor(hotel.getHotelId())
+                .reserve(firstNight(checkIn), lastNight(checkIn, checkOut), rooms, hotel.getRoomsAvailable());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reserves every stay or none of them, across any number of hotels. Returns -1 on
+    // success, otherwise the index of the first stay that could not be covered.
+    public int reserveAll(List<Stay> stays){
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for(int i = 0; i < stays.size(); i++){
+            Stay stay = stays.get(i);
+            if(stay.rooms() <= 0 || !withinHorizon(stay.checkOut())) return i;
+            stripeIndexes.add(stripeIndex(stay.hotel().getHotelId()));
+        }
+        // Stripes are always taken in ascending order, so concurrent batches can't deadlock
+        for(int index : stripeIndexes){
+            stripes[index].lock();
+        }
+        try {
+            for(int i = 0; i < stays.size(); i++){
+                Stay stay = stays.get(i);
+                boolean reserved = ledgerFor(stay.hotel().getHotelId()).reserve(firstNight(stay.checkIn()),
+                    lastNight(stay.checkIn(), stay.checkOut()), stay.rooms(), stay.hotel().getRoomsAvailable());
+                if(!reserved){
+                    for(int j = 0; j < i; j++){
+                        Stay taken = stays.get(j);
+                        ledgerFor(taken.hotel().getHotelId()).add(firstNight(taken.checkIn()),
+                            lastNight(taken.checkIn(), taken.checkOut()), -taken.rooms());
+                    }
+                    return i;
+                }
+            }
+            return -1;
+        } finally {
+            for(int index : stripeIndexes.descendingSet()){
+                stripes[index].unlock();
+            }
+        }
+    }
+
+    public void release(Long hotelId, LocalDate checkIn, LocalDate checkOut, int rooms){
+        if(rooms <= 0) return;
+        adjust(hotelId, checkIn, checkOut, -rooms);
+    }
+
+    // Moves an existing reservation to a new range/room count in one step so the
+    // released rooms cannot be taken by another booking in between
+    public boolean move(Hotel hotel, LocalDate oldIn, LocalDate oldOut, int oldRooms,
+                        LocalDate newIn, LocalDate newOut, int newRooms){
+        if(newRooms <= 0 || !withinHorizon(newOut)) return false;
+        ReentrantLock lock = stripeFor(hotel.getHotelId());
+        lock.lock();
+        try {
+            return ledgerFor(hotel.getHotelId()).move(
+                firstNight(oldIn), lastNight(oldIn, oldOut), oldRooms,
+                firstNight(newIn), lastNight(newIn, newOut), newRooms, hotel.getRoomsAvailable());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Undoes a move whose booking could not be saved. The stored booking still has
+    // its old stay, so that is put back even if the freed nights were taken meanwhile
+    public void undoMove(Long hotelId, LocalDate oldIn, LocalDate oldOut, int oldRooms,
+                         LocalDate newIn, LocalDate newOut, int newRooms){
+        ReentrantLock lock = stripeFor(hotelId);
+        lock.lock();
+        try {
+            HotelNights nights = ledgerFor(hotelId);
+            nights.add(firstNight(newIn), lastNight(newIn, newOut), -newRooms);
+            nights.add(firstNight(oldIn), lastNight(oldIn, oldOut), oldRooms);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Smallest number of free rooms across the stay
+    public int available(Hotel hotel, LocalDate checkIn, LocalDate checkOut){
+        ReentrantLock lock = stripeFor(hotel.getHotelId());
+        lock.lock();
+        try {
+            return hotel.getRoomsAvailable() - ledgerFor(hotel.getHotelId())
+                .maxBooked(firstNight(checkIn), lastNight(checkIn, checkOut));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void forgetHotel(Long hotelId){
+        ReentrantLock lock = stripeFor(hotelId);
+        lock.lock();
+        try {
+            ledgers.remove(hotelId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(Long hotelId, LocalDate checkIn, LocalDate checkOut, int rooms){
+        ReentrantLock lock = stripeFor(hotelId);
+        lock.lock();
+        try {
+            ledgerFor(hotelId).add(firstNight(checkIn), lastNight(checkIn, checkOut), rooms);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private HotelNights ledgerFor(Long hotelId){
+        return ledgers.computeIfAbsent(hotelId, id -> new HotelNights(LocalDate.now().toEpochDay()));
+    }
+
+    private ReentrantLock stripeFor(Long hotelId){
+        return stripes[stripeIndex(hotelId)];
+    }
+
+    private static int stripeIndex(Long hotelId){
+        long h = hotelId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58) & (STRIPES - 1);
+    }
+
+    private static boolean withinHorizon(LocalDate checkOut){
+        return checkOut.toEpochDay() - LocalDate.now().toEpochDay() <= HORIZON_NIGHTS;
+    }
+
+    private static long firstNight(LocalDate checkIn){
+        return checkIn.toEpochDay();
+    }
+
+    // A same-day stay is charged as one night, so it also holds one night
+    private static long lastNight(LocalDate checkIn, LocalDate checkOut){
+        return Math.max(checkIn.toEpochDay(), checkOut.toEpochDay() - 1);
+    }
+
+    // Booked-room counters for one hotel, indexed by epoch day - baseDay.
+    // Nights before baseDay are in the past and are not tracked.
+    // Callers must hold the hotel's stripe lock.
+    static final class HotelNights {
+
+        private static final int INITIAL_NIGHTS = 400;
+
+        private long baseDay;
+        private int[] booked = new int[INITIAL_NIGHTS];
+
+        HotelNights(long baseDay){
+            this.baseDay = baseDay;
+        }
+
+        boolean reserve(long from, long to, int rooms, int capacity){
+            if(maxBooked(from, to) + rooms > capacity) return false;
+            add(from, to, rooms);
+            return true;
+        }
+
+        boolean move(long oldFrom, long oldTo, int oldRooms,
+                     long newFrom, long newTo, int newRooms, int capacity){
+            add(oldFrom, oldTo, -oldRooms);
+            if(maxBooked(newFrom, newTo) + newRooms > capacity){
+                add(oldFrom, oldTo, oldRooms);
+                return false;
+            }
+            add(newFrom, newTo, newRooms);
+            return true;
+        }
+
+        int maxBooked(long from, long to){
+            int max = 0;
+            long start = Math.max(from, baseDay);
+            long end = Math.min(to, baseDay + booked.length - 1);
+            for(long day = start; day <= end; day++){
+                max = Math.max(max, booked[(int) (day - baseDay)]);
+            }
+            return max;
+        }
+
+        void add(long from, long to, int rooms){
+            ensureCapacity(to);
+            for(long day = Math.max(from, baseDay); day <= to; day++){
+                int i = (int) (day - baseDay);
+                booked[i] = Math.max(0, booked[i] + rooms);
+            }
+        }
+
+        private void ensureCapacity(long lastDay){
+            // Drop nights that are already in the past before growing
+            long shift = Math.max(0, LocalDate.now().toEpochDay() - baseDay);
+            long needed = lastDay - baseDay - shift + 1;
+            if(shift == 0 && needed <= booked.length) return;
+
+            int kept = (int) Math.max(0, booked.length - shift);
+            int[] next = new int[(int) Math.max(booked.length, Long.highestOneBit(Math.max(needed, 1)) << 1)];
+            System.arraycopy(booked, booked.length - kept, next, 0, kept);
+            booked = next;
+            baseDay += shift;
+        }
+    }
+}
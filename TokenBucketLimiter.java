@@ -0,0 +1,50 @@
+package com.hotelbooking.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free token buckets in a fixed array of slots. Keys hash to a slot, so memory is
+// bounded no matter how many distinct clients show up; keys that share a slot share a
+// bucket, which only ever makes the limit stricter. Each slot holds the bucket as a single
+// long, the nanosecond at which it will be full again (the generic cell rate algorithm),
+// updated with a CAS. Working in nanoseconds keeps even a rate of 1/min exact.
+public final class TokenBucketLimiter {
+
+    // Starts the clock a day in, so an untouched (zero) slot reads as a full bucket
+    private static final long CLOCK_OFFSET_NANOS = 86_400_000_000_000L;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long interval;
+    private final long burstTolerance;
+    private final long origin = System.nanoTime();
+
+    // capacity is the burst size; refillPerMinute tokens are added back every minute
+    public TokenBucketLimiter(int slotCount, int capacity, int refillPerMinute){
+        if(capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        if(refillPerMinute < 1) throw new IllegalArgumentException("Refill must be positive: " + refillPerMinute);
+        int size = Integer.highestOneBit(Math.max(slotCount - 1, 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        // Nanoseconds it takes to refill one token
+        this.interval = 60_000_000_000L / refillPerMinute;
+        this.burstTolerance = interval * (capacity - 1);
+    }
+
+    public boolean tryAcquire(String key){
+        int slot = slot(key);
+        long now = System.nanoTime() - origin + CLOCK_OFFSET_NANOS;
+        while(true){
+            long fullAt = slots.get(slot);
+            long start = Math.max(fullAt, now);
+            // Fewer than one token left: the next one is further away than the burst allows
+            if(start - now > burstTolerance) return false;
+            if(slots.compareAndSet(slot, fullAt, start + interval)) return true;
+        }
+    }
+
+    // Package-private so tests can pick keys that land in different slots
+    int slot(String key){
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -3,10 +3,21 @@ package com.hotelbooking.controller;
 import com.hotelbooking.dto.UserResponse;
 import com.hotelbooking.entity.User;
 import com.hotelbooking.repository.UserRepository;
+import com.hotelbooking.security.ClientRateLimiter;
+import com.hotelbooking.security.PasswordHasher;
+import com.hotelbooking.security.PrincipalCache;
+import com.hotelbooking.security.RequiresRole;
+import com.hotelbooking.security.RoleAuthorizationInterceptor;
+import com.hotelbooking.service.AdminExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.validation.BindingResult;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,14 +27,31 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 public class UserController {
 
+    private static final Logger log = LoggerFactory.getLogger(UserController.class);
+
     private final UserRepository userRepository;
+    private final AdminExportService exportService;
+    private final PrincipalCache principalCache;
+    private final ClientRateLimiter rateLimiter;
+    private final PasswordHasher passwordHasher;
 
-    public UserController(UserRepository userRepository){
+    public UserController(UserRepository userRepository, AdminExportService exportService, PrincipalCache principalCache,
+                          ClientRateLimiter rateLimiter, PasswordHasher passwordHasher){
         this.userRepository = userRepository;
+        this.exportService = exportService;
+        this.principalCache = principalCache;
+        this.rateLimiter = rateLimiter;
+        this.passwordHasher = passwordHasher;
+    }
+
+    @ExceptionHandler(PasswordHasher.BusyException.class)
+    public ResponseEntity<Void> hashingBusy(){
+        return ResponseEntity.status(503).build();
     }
 
     @PostMapping
     public User createUser(@RequestBody User user){
+        if(user.getPassword() != null) user.setPassword(passwordHasher.hash(user.getPassword()));
         return userRepository.save(user);
     }
 
@@ -38,7 +66,7 @@ public class UserController {
         admin.setName("System Admin");
         admin.setEmail("admin@hotel.com");
         admin.setPhone("+94771234567");
-        admin.setPassword("admin123");
+        admin.setPassword(passwordHasher.hash("admin123"));
         admin.setRole("ADMIN");
         admin.setStatus("ACTIVE");
         
@@ -55,12 +83,13 @@ public class UserController {
             return ResponseEntity.notFound().build();
         }
         
-        System.out.println("Fixing admin role for user: " + user.getName() + ", current role: " + user.getRole());
+        log.info("Fixing admin role for user {}, current role: {}", userId, user.getRole());
         user.setRole("ADMIN");
         user.setStatus("ACTIVE");
         
         User savedUser = userRepository.save(user);
-        System.out.println("User role updated to: " + savedUser.getRole());
+        principalCache.invalidate(userId);
+        log.info("User {} role updated to {}", userId, savedUser.getRole());
         
         UserResponse response = new UserResponse(savedUser.getUserId(), savedUser.getName(), 
             savedUser.getEmail(), savedUser.getPhone(), savedUser.getRole(), savedUser.getStatus());
@@ -68,7 +97,10 @@ public class UserController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@Valid @RequestBody User user, BindingResult result){
+    public ResponseEntity<?> register(@Valid @RequestBody User user, BindingResult result, HttpServletRequest request){
+        if(!rateLimiter.allowRegistration(request)){
+            return ResponseEntity.status(429).build();
+        }
         if(result.hasErrors()){
             return ResponseEntity.badRequest().body(result.getAllErrors().stream()
                 .map(error -> error.getDefaultMessage()).collect(Collectors.toList()));
@@ -78,6 +110,7 @@ public class UserController {
         }
         user.setRole("USER");
         user.setStatus("ACTIVE");
+        user.setPassword(passwordHasher.hash(user.getPassword()));
         User savedUser = userRepository.save(user);
         UserResponse response = new UserResponse(savedUser.getUserId(), savedUser.getName(), 
             savedUser.getEmail(), savedUser.getPhone(), savedUser.getRole(), savedUser.getStatus());
@@ -85,28 +118,37 @@ public class UserController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<UserResponse> login(@RequestParam String email, @RequestParam String password){
-        System.out.println("Login attempt - Email: " + email + ", Password: " + password);
+    public ResponseEntity<UserResponse> login(@RequestParam String email, @RequestParam String password, HttpServletRequest request){
+        // Throttled before the lookup so a flood of attempts never reaches the database
+        if(!rateLimiter.allowLogin(request, email)){
+            log.debug("Login throttled");
+            return ResponseEntity.status(429).build();
+        }
         
         User user = userRepository.findByEmail(email).orElse(null);
         if(user == null) {
-            System.out.println("User not found with email: " + email);
+            log.debug("Login failed, unknown email");
             return ResponseEntity.badRequest().build();
         }
         
-        System.out.println("User found - Name: " + user.getName() + ", Role: " + user.getRole() + ", Stored Password: " + user.getPassword());
-        
-        if(!user.getPassword().equals(password)){
-            System.out.println("Password mismatch - Provided: " + password + ", Stored: " + user.getPassword());
+        if(!passwordHasher.matches(password, user.getPassword())){
+            log.debug("Login failed for user {}, password mismatch", user.getUserId());
             return ResponseEntity.badRequest().build();
         }
         
+        // Plaintext rows and outdated hashes are upgraded now that the password is known
+        if(passwordHasher.needsRehash(user.getPassword())){
+            user.setPassword(passwordHasher.hash(password));
+            user = userRepository.save(user);
+            log.debug("Password hash upgraded for user {}", user.getUserId());
+        }
+        
         if("BLOCKED".equals(user.getStatus())){
-            System.out.println("User is blocked");
+            log.debug("Login refused for blocked user {}", user.getUserId());
             return ResponseEntity.status(403).build();
         }
         
-        System.out.println("Login successful for user: " + user.getName());
+        log.debug("Login successful for user {}", user.getUserId());
         UserResponse response = new UserResponse(user.getUserId(), user.getName(), 
             user.getEmail(), user.getPhone(), user.getRole(), user.getStatus());
         return ResponseEntity.ok(response);
@@ -125,34 +167,53 @@ public class UserController {
             .collect(Collectors.toList());
     }
 
+    @GetMapping("/page")
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<List<UserResponse>> getUserPage(@RequestParam Long adminId,
+                                                          @RequestParam(defaultValue = "0") long after,
+                                                          @RequestParam(defaultValue = "100") int limit){
+        List<UserResponse> page = exportService.userPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(page.size() == AdminExportService.clampLimit(limit)){
+            response.header("X-Next-After", String.valueOf(page.get(page.size() - 1).getUserId()));
+        }
+        return response.body(page);
+    }
+
+    @GetMapping("/export")
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam Long adminId,
+                                                             @RequestParam(defaultValue = "ndjson") String format){
+        AdminExportService.Format exportFormat;
+        try {
+            exportFormat = AdminExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> exportService.exportUsers(out, exportFormat);
+        return ResponseEntity.ok()
+            .contentType(exportFormat == AdminExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+            .body(body);
+    }
+
     @PutMapping("/{id}/role")
     @Transactional
-    public ResponseEntity<UserResponse> updateUserRole(@PathVariable Long id, @RequestParam String role, @RequestParam Long adminId){
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
+    public ResponseEntity<UserResponse> updateUserRole(@PathVariable Long id, @RequestParam String role, @RequestParam Long adminId,
+                                                       @RequestAttribute(RoleAuthorizationInterceptor.PRINCIPAL_ATTRIBUTE) PrincipalCache.Principal admin){
         try {
-            System.out.println("Role update request - User ID: " + id + ", New Role: " + role + ", Admin ID: " + adminId);
-            
-            User admin = userRepository.findById(adminId).orElse(null);
-            if(admin == null) {
-                System.out.println("Admin not found with ID: " + adminId);
-                return ResponseEntity.status(403).build();
-            }
-            
-            System.out.println("Admin found - Name: " + admin.getName() + ", Role: " + admin.getRole());
-            
-            if(!"ADMIN".equals(admin.getRole()) && !"SUB_ADMIN".equals(admin.getRole())){
-                System.out.println("User is not ADMIN or SUB_ADMIN, role is: " + admin.getRole());
-                return ResponseEntity.status(403).build();
-            }
+            log.info("Role update request - user {}, new role {}, admin {}", id, role, adminId);
             
             // Only main ADMIN can assign ADMIN or SUB_ADMIN roles
-            if(("ADMIN".equals(role) || "SUB_ADMIN".equals(role)) && !"ADMIN".equals(admin.getRole())) {
-                System.out.println("Only main ADMIN can assign ADMIN or SUB_ADMIN roles");
+            if(("ADMIN".equals(role) || "SUB_ADMIN".equals(role)) && !"ADMIN".equals(admin.role())) {
+                log.warn("Admin {} tried to assign {} without the ADMIN role", adminId, role);
                 return ResponseEntity.status(403).build();
             }
             
             // Prevent admin from changing their own role to non-admin
             if(adminId.equals(id) && !"ADMIN".equals(role)) {
-                System.out.println("Admin cannot change their own role to non-admin");
+                log.warn("Admin {} tried to change their own role to {}", adminId, role);
                 return ResponseEntity.status(400).build();
             }
             
@@ -161,52 +222,40 @@ public class UserController {
             
             user.setRole(role);
             User updatedUser = userRepository.save(user);
+            principalCache.invalidate(id);
             UserResponse response = new UserResponse(updatedUser.getUserId(), updatedUser.getName(), 
                 updatedUser.getEmail(), updatedUser.getPhone(), updatedUser.getRole(), updatedUser.getStatus());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.out.println("Error updating user role: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating role of user {}", id, e);
             return ResponseEntity.status(500).build();
         }
     }
 
     @PutMapping("/{id}/status")
     @Transactional
+    @RequiresRole({"ADMIN", "SUB_ADMIN"})
     public ResponseEntity<UserResponse> updateUserStatus(@PathVariable Long id, @RequestParam String status, @RequestParam Long adminId){
         try {
-            System.out.println("Status update request - User ID: " + id + ", New Status: " + status + ", Admin ID: " + adminId);
+            log.info("Status update request - user {}, new status {}, admin {}", id, status, adminId);
             
             // Validate status parameter
             if(!"ACTIVE".equals(status) && !"BLOCKED".equals(status)) {
-                System.out.println("Invalid status: " + status);
+                log.debug("Invalid status: {}", status);
                 return ResponseEntity.badRequest().build();
             }
             
-            User admin = userRepository.findById(adminId).orElse(null);
-            if(admin == null) {
-                System.out.println("Admin not found with ID: " + adminId);
-                return ResponseEntity.status(403).build();
-            }
-            
-            System.out.println("Admin found - Name: " + admin.getName() + ", Role: " + admin.getRole());
-            
-            if(!"ADMIN".equals(admin.getRole()) && !"SUB_ADMIN".equals(admin.getRole())){
-                System.out.println("User is not ADMIN or SUB_ADMIN, role is: " + admin.getRole());
-                return ResponseEntity.status(403).build();
-            }
-            
             User user = userRepository.findById(id).orElse(null);
             if(user == null) return ResponseEntity.notFound().build();
             
             user.setStatus(status);
             User updatedUser = userRepository.save(user);
+            principalCache.invalidate(id);
             UserResponse response = new UserResponse(updatedUser.getUserId(), updatedUser.getName(), 
                 updatedUser.getEmail(), updatedUser.getPhone(), updatedUser.getRole(), updatedUser.getStatus());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.out.println("Error updating user status: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating status of user {}", id, e);
             return ResponseEntity.status(500).build();
         }
     }
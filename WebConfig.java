@@ -0,0 +1,26 @@
+package com.hotelbooking.config;
+
+import com.hotelbooking.metrics.RequestMetricsInterceptor;
+import com.hotelbooking.security.RoleAuthorizationInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RoleAuthorizationInterceptor roleAuthorizationInterceptor;
+    private final RequestMetricsInterceptor requestMetricsInterceptor;
+
+    public WebConfig(RoleAuthorizationInterceptor roleAuthorizationInterceptor, RequestMetricsInterceptor requestMetricsInterceptor){
+        this.roleAuthorizationInterceptor = roleAuthorizationInterceptor;
+        this.requestMetricsInterceptor = requestMetricsInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry){
+        // Registered first so rejected requests are timed too
+        registry.addInterceptor(requestMetricsInterceptor).addPathPatterns("/api/**");
+        registry.addInterceptor(roleAuthorizationInterceptor).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,142 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.entity.Booking;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.Offer;
+import com.hotelbooking.entity.User;
+import com.hotelbooking.service.BookingEventPublisher;
+import com.hotelbooking.service.BookingExpiryScheduler;
+import com.hotelbooking.service.BookingPricing;
+import com.hotelbooking.service.BookingService;
+import com.hotelbooking.service.ExchangeRates;
+import com.hotelbooking.service.HotelCatalogCache;
+import com.hotelbooking.service.InventoryCapacityMigration;
+import com.hotelbooking.service.OfferCache;
+import com.hotelbooking.service.OfferService;
+import com.hotelbooking.service.ReservationEngine;
+import com.hotelbooking.service.RoomInventoryLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// BookingController.placeBooking over the shipped classes: the HotelCatalogCache lookup,
+// the OfferCache best discount, pricing and conversion, then ReservationEngine.reserve
+// taking the rooms from a real RoomInventoryLedger. The controller's own lines are copied
+// here; the booking row write, hold tracking and event publication are in-memory stubs,
+// so the database is not included.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingCreationBenchmark {
+
+    private static final int HOTELS = 10_000;
+    private static final int USERS = 10_000;
+    // Check-in days the bookings are spread over, so no hotel fills up within an iteration
+    private static final int DAYS = 300;
+
+    private InMemoryUserRepository userRepository;
+    private HotelCatalogCache catalogCache;
+    private OfferCache offerCache;
+    private BookingService bookingService;
+    private ReservationEngine reservationEngine;
+    private ExchangeRates rates;
+    private String[] checkIns;
+    private String[] checkOuts;
+    private long sequence;
+
+    @Setup
+    public void setUp(){
+        userRepository = new InMemoryUserRepository(USERS);
+        catalogCache = new HotelCatalogCache(InMemoryHotelRepository.generate(HOTELS, 42));
+        offerCache = new OfferCache(new OfferService(offers(catalogCache.hotels())), catalogCache);
+        bookingService = new BookingService();
+        rates = Rates.sample();
+        checkIns = new String[DAYS];
+        checkOuts = new String[DAYS];
+        LocalDate first = LocalDate.now().plusDays(30);
+        for(int i = 0; i < DAYS; i++){
+            checkIns[i] = first.plusDays(i).toString();
+            checkOuts[i] = first.plusDays(i + 7).toString();
+        }
+    }
+
+    // A fresh ledger each iteration, so every iteration books against the same free rooms
+    @Setup(Level.Iteration)
+    public void resetInventory(){
+        BookingEventPublisher bookingEvents = new BookingEventPublisher();
+        RoomInventoryLedger inventoryLedger = new RoomInventoryLedger(bookingEvents, new InventoryCapacityMigration());
+        inventoryLedger.loadExistingBookings();
+        reservationEngine = new ReservationEngine(bookingService, inventoryLedger, new BookingExpiryScheduler(),
+            bookingEvents, new NoTransactionManager());
+        bookingService.clear();
+    }
+
+    @Benchmark
+    public Booking createBooking(){
+        long n = sequence++;
+        int day = (int) ((n / HOTELS) % DAYS);
+        return create(1 + n % USERS, 1 + (n * 31) % HOTELS, checkIns[day], checkOuts[day], 2, "LKR");
+    }
+
+    private Booking create(Long userId, Long hotelId, String checkIn, String checkOut, int roomsBooked, String currency){
+        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<Hotel> hotelOpt = catalogCache.findById(hotelId);
+        LocalDate inDate = LocalDate.parse(checkIn);
+        LocalDate outDate = LocalDate.parse(checkOut);
+        if(userOpt.isEmpty() || hotelOpt.isEmpty() || !rates.supports(currency)) return null;
+
+        Hotel hotel = hotelOpt.get();
+        long nights = BookingPricing.nights(inDate, outDate);
+        BigDecimal baseAmount = BookingPricing.stayTotal(BigDecimal.valueOf(hotel.getPricePerNight()), nights, roomsBooked);
+        baseAmount = BookingPricing.discounted(baseAmount, offerCache.bestDiscountForHotel(hotelId));
+        BigDecimal totalAmount = rates.convert(baseAmount, "USD", currency);
+
+        Booking booking = new Booking();
+        booking.setOrderId(UUID.randomUUID().toString());
+        booking.setUser(userOpt.get());
+        booking.setHotel(hotel);
+        booking.setCheckIn(inDate);
+        booking.setCheckOut(outDate);
+        booking.setRoomsBooked(roomsBooked);
+        booking.setTotalAmount(totalAmount);
+        booking.setCurrency(currency);
+        booking.setStatus("pending");
+        return reservationEngine.reserve(booking).orElse(null);
+    }
+
+    // Every tenth hotel has a running offer, and every twentieth an ended and an upcoming one
+    static List<Offer> offers(List<Hotel> hotels){
+        LocalDate today = LocalDate.now();
+        List<Offer> offers = new ArrayList<>();
+        long id = 1;
+        for(Hotel hotel : hotels){
+            long hotelId = hotel.getHotelId();
+            if(hotelId % 10 == 0){
+                offers.add(new Offer(id++, hotel, "Seasonal", 10.0, today.minusDays(5), today.plusDays(60)));
+            }
+            if(hotelId % 20 == 0){
+                offers.add(new Offer(id++, hotel, "Ended", 25.0, today.minusDays(60), today.minusDays(1)));
+                offers.add(new Offer(id++, hotel, "Upcoming", 15.0, today.plusDays(10), today.plusDays(40)));
+            }
+        }
+        return offers;
+    }
+}
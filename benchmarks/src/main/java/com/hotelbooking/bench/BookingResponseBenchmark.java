@@ -0,0 +1,103 @@
+package com.hotelbooking.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hotelbooking.dto.BookingSummary;
+import com.hotelbooking.dto.BookingView;
+import com.hotelbooking.entity.Booking;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.User;
+import com.hotelbooking.service.HotelCatalogCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// The booking listing response before and after the projection: the Booking entities with
+// user and hotel as the join fetch returned them, serialised whole, against the
+// BookingSummary rows mapped to BookingView with the hotel from the catalog, as
+// BookingViews does. Both use Jackson configured as Spring Boot configures it. The response
+// size is printed at setup; -prof gc gives the bytes allocated per response. The database
+// read and Hibernate's entity hydration are not included on either side.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingResponseBenchmark {
+
+    private static final int HOTELS = 1_000;
+    private static final int USERS = 200;
+
+    // A user's own listing and a page of the admin listing
+    @Param({"20", "500"})
+    public int rows;
+
+    private ObjectMapper mapper;
+    private HotelCatalogCache catalogCache;
+    private List<Booking> entities;
+    private List<BookingSummary> summaries;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        catalogCache = new HotelCatalogCache(InMemoryHotelRepository.generate(HOTELS, 42));
+        InMemoryUserRepository users = new InMemoryUserRepository(USERS);
+        entities = new ArrayList<>(rows);
+        summaries = new ArrayList<>(rows);
+        LocalDate first = LocalDate.now().plusDays(14);
+        for(int i = 0; i < rows; i++){
+            User user = users.findById(1L + i % USERS).orElseThrow();
+            Hotel hotel = catalogCache.findById(1L + (i * 37L) % HOTELS).orElseThrow();
+            Booking booking = new Booking();
+            booking.setBookingId(1_000L + i);
+            booking.setOrderId(UUID.nameUUIDFromBytes(("order-" + i).getBytes()).toString());
+            booking.setUser(user);
+            booking.setHotel(hotel);
+            booking.setCheckIn(first.plusDays(i % 90));
+            booking.setCheckOut(first.plusDays(i % 90 + 3));
+            booking.setRoomsBooked(1 + i % 3);
+            booking.setTotalAmount(new BigDecimal("45147.50"));
+            booking.setCurrency("LKR");
+            booking.setStatus(i % 4 == 0 ? "pending" : "confirmed");
+            entities.add(booking);
+            summaries.add(new BookingSummary(booking.getBookingId(), booking.getOrderId(),
+                user.getUserId(), user.getName(), user.getEmail(), hotel.getHotelId(), hotel.getHotelName(),
+                booking.getCheckIn(), booking.getCheckOut(), booking.getRoomsBooked(),
+                booking.getTotalAmount(), booking.getCurrency(), booking.getStatus()));
+        }
+        System.out.println("Response bytes for " + rows + " rows: entities " + entityResponse().length
+            + ", views " + viewResponse().length);
+    }
+
+    @Benchmark
+    public byte[] entityResponse() throws Exception {
+        return mapper.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] viewResponse() throws Exception {
+        Map<Long, Hotel> hotels = catalogCache.snapshot().byId();
+        List<BookingView> views = summaries.stream()
+            .map(row -> BookingView.of(row, row.hotelId() == null ? null : hotels.get(row.hotelId())))
+            .toList();
+        return mapper.writeValueAsBytes(views);
+    }
+}
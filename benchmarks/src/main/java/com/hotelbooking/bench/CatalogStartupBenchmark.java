@@ -0,0 +1,122 @@
+package com.hotelbooking.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.Offer;
+import com.hotelbooking.service.CatalogSnapshotStore;
+import com.hotelbooking.service.HotelCatalogCache;
+import com.hotelbooking.service.HotelSearchIndex;
+import com.hotelbooking.service.OfferCache;
+import com.hotelbooking.service.OfferService;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Time from an empty catalog to the first search answered from memory, once per fresh JVM.
+// coldStart is startup without a snapshot: the catalog and offers are read from the database
+// (H2 in-process, or over a loopback TCP connection) and the search index is built. snapshotStart is
+// CatalogSnapshotStore.load from a snapshot written at setup. Both then serve the same
+// district search with the best offer of its first hit. The background reconcile is not
+// timed. Setup writes the snapshot and fills the database in the same JVM, so the Jackson
+// and H2 classes are already loaded on both sides.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class CatalogStartupBenchmark {
+
+    @Param({"1000", "10000"})
+    public int hotels;
+
+    @Param({"mem", "tcp"})
+    public String database;
+
+    private Server server;
+    private H2HotelRepository repository;
+    private ObjectMapper mapper;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        String url = "jdbc:h2:mem:catalog;DB_CLOSE_DELAY=-1";
+        if(database.equals("tcp")){
+            server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+            url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:catalog;DB_CLOSE_DELAY=-1";
+        }
+        List<Hotel> catalog = InMemoryHotelRepository.generate(hotels, 42).findAll();
+        repository = H2HotelRepository.create(url, catalog, BookingCreationBenchmark.offers(catalog));
+        // As Spring Boot configures the application's ObjectMapper
+        mapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        snapshot = Files.createTempFile("catalog", ".snapshot");
+
+        HotelCatalogCache catalogCache = new HotelCatalogCache(repository);
+        OfferCache offerCache = new OfferCache(
+            new OfferService(repository.findAllOffers(catalogCache.snapshot().byId())), catalogCache);
+        offerCache.activeOffers();
+        store(catalogCache, new HotelSearchIndex(catalogCache), offerCache).write();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        Files.deleteIfExists(snapshot);
+        repository.close();
+        if(server != null) server.stop();
+    }
+
+    @Benchmark
+    public int coldStart(){
+        HotelCatalogCache catalogCache = new HotelCatalogCache(repository);
+        HotelSearchIndex searchIndex = new HotelSearchIndex(catalogCache);
+        // The index build on ApplicationReadyEvent is what loads the catalog
+        searchIndex.build();
+        OfferCache offerCache = new OfferCache(
+            new OfferService(repository.findAllOffers(catalogCache.snapshot().byId())), catalogCache);
+        return firstSearch(catalogCache, searchIndex, offerCache);
+    }
+
+    @Benchmark
+    public int snapshotStart(){
+        HotelCatalogCache catalogCache = new HotelCatalogCache(repository);
+        HotelSearchIndex searchIndex = new HotelSearchIndex(catalogCache);
+        // Never called: the snapshot preloads the offers and the reconcile isn't run
+        OfferCache offerCache = new OfferCache(new OfferService(List.of()), catalogCache);
+        store(catalogCache, searchIndex, offerCache).load();
+        if(!catalogCache.isLoaded() || !searchIndex.isReady()) throw new IllegalStateException("Snapshot was not loaded");
+        return firstSearch(catalogCache, searchIndex, offerCache);
+    }
+
+    private CatalogSnapshotStore store(HotelCatalogCache catalogCache, HotelSearchIndex searchIndex, OfferCache offerCache){
+        return new CatalogSnapshotStore(catalogCache, searchIndex, offerCache, repository, mapper, snapshot.toString(), true);
+    }
+
+    private static int firstSearch(HotelCatalogCache catalogCache, HotelSearchIndex searchIndex, OfferCache offerCache){
+        List<Long> ids = searchIndex.search(Map.of(HotelSearchIndex.Field.DISTRICT, "Galle"));
+        if(ids.isEmpty()) throw new IllegalStateException("No hotels found");
+        Hotel first = catalogCache.findById(ids.get(0)).orElseThrow();
+        return ids.size() + (int) offerCache.bestDiscountForHotel(first.getHotelId());
+    }
+}
@@ -0,0 +1,62 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.service.HotelCatalogCache;
+import com.hotelbooking.service.HotelSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// searchByDistrict both ways: HotelSearchIndex.search as HotelController calls it once the
+// index is built, and the repository's substring scan it falls back to before that
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DistrictSearchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int hotels;
+
+    // A full name, a prefix, and a substring that matches nothing
+    @Param({"Colombo", "nuw", "zzz"})
+    public String district;
+
+    private InMemoryHotelRepository hotelRepository;
+    private HotelSearchIndex searchIndex;
+    private Map<HotelSearchIndex.Field, String> criteria;
+
+    @Setup
+    public void setUp(){
+        hotelRepository = InMemoryHotelRepository.generate(hotels, 42);
+        searchIndex = new HotelSearchIndex(new HotelCatalogCache(hotelRepository));
+        searchIndex.build();
+        criteria = new EnumMap<>(HotelSearchIndex.Field.class);
+        criteria.put(HotelSearchIndex.Field.DISTRICT, district);
+        criteria.put(HotelSearchIndex.Field.NAME, null);
+    }
+
+    @Benchmark
+    public List<Long> indexSearch(){
+        return searchIndex.search(criteria);
+    }
+
+    @Benchmark
+    public List<Hotel> repositoryScan(){
+        return hotelRepository.findByDistrictContainingIgnoreCase(district);
+    }
+}
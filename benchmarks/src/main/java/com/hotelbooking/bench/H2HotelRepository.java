@@ -0,0 +1,120 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.entity.Offer;
+import com.hotelbooking.repository.HotelRepository;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// HotelRepository over H2, for the startup benchmark's cold path. It keeps one connection
+// open, as the pool has its connections before the first request. Rows are read with plain
+// JDBC, so Hibernate's entity hydration is left out and a real cold start is slower.
+public final class H2HotelRepository implements HotelRepository, AutoCloseable {
+
+    private final Connection connection;
+
+    private H2HotelRepository(Connection connection){
+        this.connection = connection;
+    }
+
+    // Connects to url and replaces whatever it holds with the hotels and offers
+    public static H2HotelRepository create(String url, List<Hotel> hotels, List<Offer> offers){
+        H2HotelRepository repository;
+        try {
+            repository = new H2HotelRepository(DriverManager.getConnection(url));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not connect to " + url, e);
+        }
+        Connection connection = repository.connection;
+        try {
+            try(Statement statement = connection.createStatement()){
+                statement.execute("drop all objects");
+                statement.execute("create table hotels (hotel_id bigint primary key, hotel_name varchar(255), "
+                    + "district varchar(255), price_per_night double, rooms_available int)");
+                statement.execute("create table offers (offer_id bigint primary key, hotel_id bigint, title varchar(255), "
+                    + "discount_percentage double, valid_from date, valid_until date)");
+            }
+            try(PreparedStatement insert = connection.prepareStatement("insert into hotels values (?, ?, ?, ?, ?)")){
+                for(Hotel hotel : hotels){
+                    insert.setLong(1, hotel.getHotelId());
+                    insert.setString(2, hotel.getHotelName());
+                    insert.setString(3, hotel.getDistrict());
+                    insert.setDouble(4, hotel.getPricePerNight());
+                    insert.setInt(5, hotel.getRoomsAvailable());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try(PreparedStatement insert = connection.prepareStatement("insert into offers values (?, ?, ?, ?, ?, ?)")){
+                for(Offer offer : offers){
+                    insert.setLong(1, offer.getOfferId());
+                    insert.setLong(2, offer.getHotel().getHotelId());
+                    insert.setString(3, offer.getTitle());
+                    insert.setDouble(4, offer.getDiscountPercentage());
+                    insert.setObject(5, offer.getValidFrom());
+                    insert.setObject(6, offer.getValidUntil());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not set up " + url, e);
+        }
+        return repository;
+    }
+
+    @Override
+    public List<Hotel> findAll(){
+        return hotels("select hotel_id, hotel_name, district, price_per_night, rooms_available from hotels", null);
+    }
+
+    @Override
+    public List<Hotel> findByDistrictContainingIgnoreCase(String district){
+        return hotels("select hotel_id, hotel_name, district, price_per_night, rooms_available from hotels "
+            + "where lower(district) like ?", "%" + district.toLowerCase() + "%");
+    }
+
+    // OfferService.getAllOffers, with each offer's hotel taken from the hotels already read
+    public List<Offer> findAllOffers(Map<Long, Hotel> hotelsById){
+        try(PreparedStatement query = connection.prepareStatement(
+                "select offer_id, hotel_id, title, discount_percentage, valid_from, valid_until from offers");
+            ResultSet rows = query.executeQuery()){
+            List<Offer> offers = new ArrayList<>();
+            while(rows.next()){
+                offers.add(new Offer(rows.getLong(1), hotelsById.get(rows.getLong(2)), rows.getString(3), rows.getDouble(4),
+                    rows.getObject(5, LocalDate.class), rows.getObject(6, LocalDate.class)));
+            }
+            return offers;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<Hotel> hotels(String sql, String parameter){
+        try(PreparedStatement query = connection.prepareStatement(sql)){
+            if(parameter != null) query.setString(1, parameter);
+            try(ResultSet rows = query.executeQuery()){
+                List<Hotel> hotels = new ArrayList<>();
+                while(rows.next()){
+                    hotels.add(new Hotel(rows.getLong(1), rows.getString(2), rows.getString(3), rows.getDouble(4), rows.getInt(5)));
+                }
+                return hotels;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.entity.Hotel;
+import com.hotelbooking.repository.HotelRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Stands in for HotelRepository. findByDistrictContainingIgnoreCase scans every row the
+// way the database's LIKE '%x%' does; it is what searchByDistrict falls back to until the
+// search index is ready.
+public final class InMemoryHotelRepository implements HotelRepository {
+
+    static final String[] DISTRICTS = {"Colombo", "Kandy", "Galle", "Jaffna", "Matara", "Negombo", "Trincomalee",
+        "Anuradhapura", "Polonnaruwa", "Nuwara Eliya", "Badulla", "Batticaloa", "Kurunegala", "Ratnapura",
+        "Hambantota", "Kalutara", "Gampaha", "Kegalle", "Puttalam", "Vavuniya", "Mannar", "Ampara", "Monaragala",
+        "Matale", "Mullaitivu"};
+
+    private final List<Hotel> hotels;
+
+    private InMemoryHotelRepository(List<Hotel> hotels){
+        this.hotels = hotels;
+    }
+
+    // The same seed always gives the same catalog, so runs are comparable
+    public static InMemoryHotelRepository generate(int count, long seed){
+        Random random = new Random(seed);
+        List<Hotel> hotels = new ArrayList<>(count);
+        for(int i = 1; i <= count; i++){
+            String district = DISTRICTS[random.nextInt(DISTRICTS.length)];
+            hotels.add(new Hotel((long) i, district + " Hotel " + i, district,
+                20 + random.nextInt(480) + random.nextInt(100) / 100.0, 1 + random.nextInt(200)));
+        }
+        return new InMemoryHotelRepository(hotels);
+    }
+
+    @Override
+    public List<Hotel> findAll(){
+        return new ArrayList<>(hotels);
+    }
+
+    @Override
+    public List<Hotel> findByDistrictContainingIgnoreCase(String district){
+        String term = district.toLowerCase(Locale.ROOT);
+        List<Hotel> matches = new ArrayList<>();
+        for(Hotel hotel : hotels){
+            if(hotel.getDistrict().toLowerCase(Locale.ROOT).contains(term)) matches.add(hotel);
+        }
+        return matches;
+    }
+}
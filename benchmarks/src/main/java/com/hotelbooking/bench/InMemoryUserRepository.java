@@ -0,0 +1,23 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.entity.User;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Stands in for UserRepository
+public final class InMemoryUserRepository {
+
+    private final Map<Long, User> users = new HashMap<>();
+
+    public InMemoryUserRepository(int count){
+        for(long id = 1; id <= count; id++){
+            users.put(id, new User(id, "Guest " + id, "guest" + id + "@example.com",
+                "$2a$10$abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012", "+94 77 123 4567", "USER", "ACTIVE"));
+        }
+    }
+
+    public Optional<User> findById(Long userId){
+        return Optional.ofNullable(users.get(userId));
+    }
+}
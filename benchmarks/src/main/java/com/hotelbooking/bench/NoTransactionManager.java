@@ -0,0 +1,23 @@
+package com.hotelbooking.bench;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+// Lets TransactionTemplate run its callback with no transaction behind it
+public final class NoTransactionManager implements PlatformTransactionManager {
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition){
+        return new SimpleTransactionStatus();
+    }
+
+    @Override
+    public void commit(TransactionStatus status){
+    }
+
+    @Override
+    public void rollback(TransactionStatus status){
+    }
+}
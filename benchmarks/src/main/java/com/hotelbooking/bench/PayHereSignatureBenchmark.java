@@ -0,0 +1,61 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.service.PayHereSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.DigestUtils;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// md5sig verification of a PayHere notification, for a genuine and a forged signature
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayHereSignatureBenchmark {
+
+    private static final String SECRET = "MzE0NjQ5NjQ2MzQxNjU0MTY1NDY1NDE2NTQxNjU0";
+
+    private PayHereSignature signature;
+    private Map<String, String> genuine;
+    private Map<String, String> forged;
+
+    @Setup
+    public void setUp(){
+        signature = new PayHereSignature(SECRET);
+        genuine = new HashMap<>(Map.of("merchant_id", "1211149", "order_id", "3f2a1c7e-6b0d-4c55-9d0a-2f1e8b7c6a55",
+            "payhere_amount", "45147.50", "payhere_currency", "LKR", "status_code", "2"));
+        String hashedSecret = md5(SECRET);
+        genuine.put("md5sig", md5(genuine.get("merchant_id") + genuine.get("order_id") + genuine.get("payhere_amount")
+            + genuine.get("payhere_currency") + genuine.get("status_code") + hashedSecret));
+        forged = new HashMap<>(genuine);
+        forged.put("md5sig", "0123456789ABCDEF0123456789ABCDEF");
+        if(!signature.verify(genuine) || signature.verify(forged)) throw new IllegalStateException("Bad fixture");
+    }
+
+    @Benchmark
+    public boolean verifyGenuine(){
+        return signature.verify(genuine);
+    }
+
+    @Benchmark
+    public boolean verifyForged(){
+        return signature.verify(forged);
+    }
+
+    private static String md5(String value){
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8)).toUpperCase();
+    }
+}
@@ -0,0 +1,56 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.service.BookingPricing;
+import com.hotelbooking.service.ExchangeRates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// nights x rooms x price, then the conversion into the guest's currency
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({"USD", "LKR", "JPY"})
+    public String currency;
+
+    private ExchangeRates rates;
+    private BigDecimal pricePerNight;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+
+    @Setup
+    public void setUp(){
+        rates = Rates.sample();
+        pricePerNight = BigDecimal.valueOf(149.99);
+        checkIn = LocalDate.of(2026, 12, 20);
+        checkOut = LocalDate.of(2026, 12, 27);
+    }
+
+    @Benchmark
+    public BigDecimal stayTotal(){
+        long nights = BookingPricing.nights(checkIn, checkOut);
+        return BookingPricing.stayTotal(pricePerNight, nights, 3);
+    }
+
+    @Benchmark
+    public BigDecimal stayTotalConverted(){
+        long nights = BookingPricing.nights(checkIn, checkOut);
+        return rates.convert(BookingPricing.stayTotal(pricePerNight, nights, 3), "USD", currency);
+    }
+}
@@ -0,0 +1,19 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.service.ExchangeRates;
+import java.math.BigDecimal;
+import java.util.Map;
+
+// A fixed rate table in the shape CurrencyConversionService builds
+final class Rates {
+
+    private Rates(){
+    }
+
+    static ExchangeRates sample(){
+        return new ExchangeRates(1,
+            Map.of("USD", BigDecimal.ONE, "LKR", new BigDecimal("300.25"), "EUR", new BigDecimal("0.9213"),
+                "GBP", new BigDecimal("0.7891"), "JPY", new BigDecimal("149.57")),
+            Map.of("JPY", 0));
+    }
+}
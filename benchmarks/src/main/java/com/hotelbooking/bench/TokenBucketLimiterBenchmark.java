@@ -0,0 +1,60 @@
+package com.hotelbooking.bench;
+
+import com.hotelbooking.security.TokenBucketLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+// TokenBucketLimiter.tryAcquire with ClientRateLimiter's slot count: a request that is let
+// through, rotating over many client keys, and a request from a client whose bucket is empty
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBucketLimiterBenchmark {
+
+    private static final int SLOTS = 16_384;
+    private static final int CLIENTS = 4096;
+
+    private TokenBucketLimiter open;
+    private TokenBucketLimiter throttled;
+    private String[] clients;
+    private int next;
+
+    @Setup
+    public void setUp(){
+        // Refills far faster than the benchmark can drain it, so every call is allowed
+        open = new TokenBucketLimiter(SLOTS, 1_000_000, Integer.MAX_VALUE);
+        throttled = new TokenBucketLimiter(SLOTS, 5, 5);
+        clients = new String[CLIENTS];
+        for(int i = 0; i < CLIENTS; i++){
+            clients[i] = "10.0." + (i >> 8) + "." + (i & 0xFF);
+        }
+        while(throttled.tryAcquire(clients[0])){
+            // drain the bucket
+        }
+        if(!open.tryAcquire(clients[1]) || throttled.tryAcquire(clients[0])) throw new IllegalStateException("Bad fixture");
+    }
+
+    @Benchmark
+    public boolean allowed(){
+        String client = clients[next];
+        next = (next + 1) & (CLIENTS - 1);
+        return open.tryAcquire(client);
+    }
+
+    @Benchmark
+    public boolean denied(){
+        return throttled.tryAcquire(clients[0]);
+    }
+}
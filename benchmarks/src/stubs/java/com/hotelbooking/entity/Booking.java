@@ -0,0 +1,99 @@
+package com.hotelbooking.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Stand-in for the JPA entity
+public class Booking {
+
+    private Long bookingId;
+    private String orderId;
+    private User user;
+    private Hotel hotel;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private int roomsBooked;
+    private BigDecimal totalAmount;
+    private String currency;
+    private String status;
+
+    public Long getBookingId(){
+        return bookingId;
+    }
+
+    public void setBookingId(Long bookingId){
+        this.bookingId = bookingId;
+    }
+
+    public String getOrderId(){
+        return orderId;
+    }
+
+    public void setOrderId(String orderId){
+        this.orderId = orderId;
+    }
+
+    public User getUser(){
+        return user;
+    }
+
+    public void setUser(User user){
+        this.user = user;
+    }
+
+    public Hotel getHotel(){
+        return hotel;
+    }
+
+    public void setHotel(Hotel hotel){
+        this.hotel = hotel;
+    }
+
+    public LocalDate getCheckIn(){
+        return checkIn;
+    }
+
+    public void setCheckIn(LocalDate checkIn){
+        this.checkIn = checkIn;
+    }
+
+    public LocalDate getCheckOut(){
+        return checkOut;
+    }
+
+    public void setCheckOut(LocalDate checkOut){
+        this.checkOut = checkOut;
+    }
+
+    public int getRoomsBooked(){
+        return roomsBooked;
+    }
+
+    public void setRoomsBooked(int roomsBooked){
+        this.roomsBooked = roomsBooked;
+    }
+
+    public BigDecimal getTotalAmount(){
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount){
+        this.totalAmount = totalAmount;
+    }
+
+    public String getCurrency(){
+        return currency;
+    }
+
+    public void setCurrency(String currency){
+        this.currency = currency;
+    }
+
+    public String getStatus(){
+        return status;
+    }
+
+    public void setStatus(String status){
+        this.status = status;
+    }
+}
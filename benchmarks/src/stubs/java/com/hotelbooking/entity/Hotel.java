@@ -0,0 +1,62 @@
+package com.hotelbooking.entity;
+
+// Stand-in for the JPA entity with the columns the compiled classes read
+public class Hotel {
+
+    private Long hotelId;
+    private String hotelName;
+    private String district;
+    private double pricePerNight;
+    private int roomsAvailable;
+
+    public Hotel(){
+    }
+
+    public Hotel(Long hotelId, String hotelName, String district, double pricePerNight, int roomsAvailable){
+        this.hotelId = hotelId;
+        this.hotelName = hotelName;
+        this.district = district;
+        this.pricePerNight = pricePerNight;
+        this.roomsAvailable = roomsAvailable;
+    }
+
+    public Long getHotelId(){
+        return hotelId;
+    }
+
+    public void setHotelId(Long hotelId){
+        this.hotelId = hotelId;
+    }
+
+    public String getHotelName(){
+        return hotelName;
+    }
+
+    public void setHotelName(String hotelName){
+        this.hotelName = hotelName;
+    }
+
+    public String getDistrict(){
+        return district;
+    }
+
+    public void setDistrict(String district){
+        this.district = district;
+    }
+
+    public double getPricePerNight(){
+        return pricePerNight;
+    }
+
+    public void setPricePerNight(double pricePerNight){
+        this.pricePerNight = pricePerNight;
+    }
+
+    public int getRoomsAvailable(){
+        return roomsAvailable;
+    }
+
+    public void setRoomsAvailable(int roomsAvailable){
+        this.roomsAvailable = roomsAvailable;
+    }
+}
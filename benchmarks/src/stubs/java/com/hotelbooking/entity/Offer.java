@@ -0,0 +1,74 @@
+package com.hotelbooking.entity;
+
+import java.time.LocalDate;
+
+// Stand-in for the JPA entity with the columns OfferCache reads
+public class Offer {
+
+    private Long offerId;
+    private Hotel hotel;
+    private String title;
+    private Double discountPercentage;
+    private LocalDate validFrom;
+    private LocalDate validUntil;
+
+    public Offer(){
+    }
+
+    public Offer(Long offerId, Hotel hotel, String title, Double discountPercentage, LocalDate validFrom, LocalDate validUntil){
+        this.offerId = offerId;
+        this.hotel = hotel;
+        this.title = title;
+        this.discountPercentage = discountPercentage;
+        this.validFrom = validFrom;
+        this.validUntil = validUntil;
+    }
+
+    public Long getOfferId(){
+        return offerId;
+    }
+
+    public void setOfferId(Long offerId){
+        this.offerId = offerId;
+    }
+
+    public Hotel getHotel(){
+        return hotel;
+    }
+
+    public void setHotel(Hotel hotel){
+        this.hotel = hotel;
+    }
+
+    public String getTitle(){
+        return title;
+    }
+
+    public void setTitle(String title){
+        this.title = title;
+    }
+
+    public Double getDiscountPercentage(){
+        return discountPercentage;
+    }
+
+    public void setDiscountPercentage(Double discountPercentage){
+        this.discountPercentage = discountPercentage;
+    }
+
+    public LocalDate getValidFrom(){
+        return validFrom;
+    }
+
+    public void setValidFrom(LocalDate validFrom){
+        this.validFrom = validFrom;
+    }
+
+    public LocalDate getValidUntil(){
+        return validUntil;
+    }
+
+    public void setValidUntil(LocalDate validUntil){
+        this.validUntil = validUntil;
+    }
+}
@@ -0,0 +1,83 @@
+package com.hotelbooking.entity;
+
+// Stand-in for the JPA entity. It carries the columns the entity serialises, password
+// included, so the booking view benchmark compares like for like.
+public class User {
+
+    private Long userId;
+    private String name;
+    private String email;
+    private String password;
+    private String phone;
+    private String role;
+    private String status;
+
+    public User(){
+    }
+
+    public User(Long userId, String name, String email, String password, String phone, String role, String status){
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+        this.password = password;
+        this.phone = phone;
+        this.role = role;
+        this.status = status;
+    }
+
+    public Long getUserId(){
+        return userId;
+    }
+
+    public void setUserId(Long userId){
+        this.userId = userId;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public void setName(String name){
+        this.name = name;
+    }
+
+    public String getEmail(){
+        return email;
+    }
+
+    public void setEmail(String email){
+        this.email = email;
+    }
+
+    public String getPassword(){
+        return password;
+    }
+
+    public void setPassword(String password){
+        this.password = password;
+    }
+
+    public String getPhone(){
+        return phone;
+    }
+
+    public void setPhone(String phone){
+        this.phone = phone;
+    }
+
+    public String getRole(){
+        return role;
+    }
+
+    public void setRole(String role){
+        this.role = role;
+    }
+
+    public String getStatus(){
+        return status;
+    }
+
+    public void setStatus(String status){
+        this.status = status;
+    }
+}
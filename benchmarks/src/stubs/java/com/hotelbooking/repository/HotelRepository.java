@@ -0,0 +1,12 @@
+package com.hotelbooking.repository;
+
+import com.hotelbooking.entity.Hotel;
+import java.util.List;
+
+// The HotelRepository methods the compiled classes and benchmarks call
+public interface HotelRepository {
+
+    List<Hotel> findAll();
+
+    List<Hotel> findByDistrictContainingIgnoreCase(String district);
+}
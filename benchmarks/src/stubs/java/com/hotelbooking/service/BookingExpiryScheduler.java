@@ -0,0 +1,10 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Booking;
+
+// Stand-in: hold windows are not tracked
+public class BookingExpiryScheduler {
+
+    public void track(Booking booking){
+    }
+}
@@ -0,0 +1,32 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Booking;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-memory stand-in for the JPA-backed service. Saved bookings are kept so the work
+// can't be optimised away; clear() runs between benchmark iterations.
+public class BookingService {
+
+    private final ConcurrentHashMap<Long, Booking> bookings = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public Booking saveBooking(Booking booking){
+        if(booking.getBookingId() == null) booking.setBookingId(nextId.getAndIncrement());
+        bookings.put(booking.getBookingId(), booking);
+        return booking;
+    }
+
+    public Optional<Booking> findById(Long bookingId){
+        return Optional.ofNullable(bookings.get(bookingId));
+    }
+
+    public void deleteBooking(Long bookingId){
+        bookings.remove(bookingId);
+    }
+
+    public void clear(){
+        bookings.clear();
+    }
+}
@@ -0,0 +1,5 @@
+package com.hotelbooking.service;
+
+// Stand-in: RoomInventoryLedger only takes it to order startup
+public class InventoryCapacityMigration {
+}
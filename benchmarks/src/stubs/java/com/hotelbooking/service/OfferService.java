@@ -0,0 +1,18 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Offer;
+import java.util.List;
+
+// Stand-in serving a fixed list of offers
+public class OfferService {
+
+    private final List<Offer> offers;
+
+    public OfferService(List<Offer> offers){
+        this.offers = List.copyOf(offers);
+    }
+
+    public List<Offer> getAllOffers(){
+        return offers;
+    }
+}
@@ -0,0 +1,58 @@
+package com.hotelbooking.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketLimiterTest {
+
+    // Same slot count as ClientRateLimiter, with the login-by-email limits
+    private static final int SLOTS = 16_384;
+    private static final int BURST = 5;
+    private static final int PER_MINUTE = 5;
+
+    @Test
+    void oneClientUsingUpItsBucketDoesNotThrottleAnother(){
+        TokenBucketLimiter limiter = new TokenBucketLimiter(SLOTS, BURST, PER_MINUTE);
+        String attacker = "203.0.113.7";
+        String other = otherSlotThan(limiter, attacker);
+
+        for(int i = 0; i < BURST; i++){
+            assertTrue(limiter.tryAcquire(attacker));
+        }
+        for(int i = 0; i < 100; i++){
+            assertFalse(limiter.tryAcquire(attacker));
+        }
+        for(int i = 0; i < BURST; i++){
+            assertTrue(limiter.tryAcquire(other), "request " + (i + 1) + " of " + other);
+        }
+        assertFalse(limiter.tryAcquire(other));
+    }
+
+    @Test
+    void keysInTheSameSlotShareABucket(){
+        TokenBucketLimiter limiter = new TokenBucketLimiter(SLOTS, BURST, PER_MINUTE);
+        String first = "198.51.100.1";
+        String second = sameSlotAs(limiter, first);
+
+        for(int i = 0; i < BURST; i++){
+            assertTrue(limiter.tryAcquire(first));
+        }
+        assertFalse(limiter.tryAcquire(second));
+    }
+
+    private static String otherSlotThan(TokenBucketLimiter limiter, String key){
+        for(int i = 1; ; i++){
+            String candidate = "198.51.100." + i;
+            if(limiter.slot(candidate) != limiter.slot(key)) return candidate;
+        }
+    }
+
+    private static String sameSlotAs(TokenBucketLimiter limiter, String key){
+        for(int i = 0; ; i++){
+            String candidate = "client-" + i;
+            if(!candidate.equals(key) && limiter.slot(candidate) == limiter.slot(key)) return candidate;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.hotelbooking.service;
+
+import com.hotelbooking.entity.Hotel;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Threads reserve, reserveAll, move and release stays on a few small hotels over a short
+// range of nights, so almost every call contends. Each thread keeps the stays it holds.
+// While they run, a checker reads every night and fails if one is ever over capacity;
+// afterwards every night's booked count must equal the sum of the stays still held.
+class RoomInventoryLedgerStressTest {
+
+    private static final int HOTELS = 4;
+    private static final int CAPACITY = 5;
+    private static final int NIGHTS = 14;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20_000;
+
+    private final LocalDate firstNight = LocalDate.now().plusDays(1);
+    private final List<Hotel> hotels = new ArrayList<>();
+    private final RoomInventoryLedger ledger =
+        new RoomInventoryLedger(new BookingEventPublisher(), new InventoryCapacityMigration());
+
+    @Test
+    void neverBooksANightOverCapacity() throws Exception {
+        for(long id = 1; id <= HOTELS; id++){
+            hotels.add(new Hotel(id, "Hotel " + id, "Colombo", 100, CAPACITY));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> overbooked = new AtomicReference<>();
+        Thread checker = new Thread(() -> {
+            while(running.get() && overbooked.get() == null){
+                for(Hotel hotel : hotels){
+                    for(int n = 0; n < NIGHTS; n++){
+                        LocalDate night = firstNight.plusDays(n);
+                        int free = ledger.available(hotel, night, night.plusDays(1));
+                        if(free < 0){
+                            overbooked.compareAndSet(null, "hotel " + hotel.getHotelId() + " on " + night + " has " + free + " free");
+                        }
+                    }
+                }
+            }
+        });
+        checker.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<RoomInventoryLedger.Stay>>> workers = new ArrayList<>();
+        for(int t = 0; t < THREADS; t++){
+            workers.add(pool.submit(() -> {
+                start.await();
+                return churn();
+            }));
+        }
+        start.countDown();
+        List<RoomInventoryLedger.Stay> held = new ArrayList<>();
+        for(Future<List<RoomInventoryLedger.Stay>> worker : workers){
+            held.addAll(worker.get(2, TimeUnit.MINUTES));
+        }
+        pool.shutdown();
+        running.set(false);
+        checker.join();
+
+        assertNull(overbooked.get());
+        for(Hotel hotel : hotels){
+            for(int n = 0; n < NIGHTS; n++){
+                LocalDate night = firstNight.plusDays(n);
+                int expected = 0;
+                for(RoomInventoryLedger.Stay stay : held){
+                    if(stay.hotel() == hotel && !night.isBefore(stay.checkIn()) && night.isBefore(stay.checkOut())){
+                        expected += stay.rooms();
+                    }
+                }
+                int booked = CAPACITY - ledger.available(hotel, night, night.plusDays(1));
+                assertEquals(expected, booked, "hotel " + hotel.getHotelId() + " on " + night);
+                assertTrue(booked <= CAPACITY, "hotel " + hotel.getHotelId() + " on " + night);
+            }
+        }
+    }
+
+    // One thread's share of the load; returns the stays it still holds
+    private List<RoomInventoryLedger.Stay> churn(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<RoomInventoryLedger.Stay> held = new ArrayList<>();
+        for(int i = 0; i < OPERATIONS; i++){
+            int op = random.nextInt(4);
+            if(op == 0){
+                RoomInventoryLedger.Stay stay = randomStay(random);
+                if(ledger.reserve(stay.hotel(), stay.checkIn(), stay.checkOut(), stay.rooms())){
+                    held.add(stay);
+                }
+            } else if(op == 1){
+                List<RoomInventoryLedger.Stay> stays = new ArrayList<>();
+                for(int s = random.nextInt(2, 4); s > 0; s--){
+                    stays.add(randomStay(random));
+                }
+                if(ledger.reserveAll(stays) == -1){
+                    held.addAll(stays);
+                }
+            } else if(op == 2 && !held.isEmpty()){
+                int index = random.nextInt(held.size());
+                RoomInventoryLedger.Stay old = held.get(index);
+                RoomInventoryLedger.Stay next = randomStay(random, old.hotel());
+                if(ledger.move(old.hotel(), old.checkIn(), old.checkOut(), old.rooms(),
+                    next.checkIn(), next.checkOut(), next.rooms())){
+                    held.set(index, next);
+                }
+            } else if(op == 3 && !held.isEmpty()){
+                RoomInventoryLedger.Stay stay = held.remove(random.nextInt(held.size()));
+                ledger.release(stay.hotel().getHotelId(), stay.checkIn(), stay.checkOut(), stay.rooms());
+            }
+        }
+        return held;
+    }
+
+    private RoomInventoryLedger.Stay randomStay(ThreadLocalRandom random){
+        return randomStay(random, hotels.get(random.nextInt(HOTELS)));
+    }
+
+    private RoomInventoryLedger.Stay randomStay(ThreadLocalRandom random, Hotel hotel){
+        int from = random.nextInt(NIGHTS);
+        int nights = random.nextInt(1, Math.min(4, NIGHTS - from) + 1);
+        LocalDate checkIn = firstNight.plusDays(from);
+        return new RoomInventoryLedger.Stay(hotel, checkIn, checkIn.plusDays(nights), random.nextInt(1, 3));
+    }
+}